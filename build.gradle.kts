@@ -12,6 +12,7 @@ version = "1.0-SNAPSHOT"
 
 repositories {
     mavenCentral()
+    maven("https://repo.gradle.org/gradle/libs-releases")
 }
 
 val junitVersion = "5.12.1"
@@ -47,6 +48,7 @@ dependencies {
     }
     implementation("org.kordamp.ikonli:ikonli-javafx:12.3.1")
     implementation("org.kordamp.bootstrapfx:bootstrapfx-core:0.4.0")
+    implementation("org.gradle:gradle-tooling-api:8.13")
     // Removed tilesfx and fxgl - not needed for IDE
     testImplementation("org.junit.jupiter:junit-jupiter-api:${junitVersion}")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:${junitVersion}")
@@ -0,0 +1,280 @@
+package com.example.f_ex;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Процессоры аннотаций проекта для диагностики (включается в настройках).
+ * Процессоры ищутся в classpath модели по META-INF/services. Процессоры,
+ * меняющие дерево на месте (Lombok), запускаются в каждой проверке; остальные
+ * (MapStruct, AutoValue, ...) один раз генерируют исходники в кэш
+ * ~/.f_ex/apt/&lt;отпечаток модели&gt;, который добавляется в sourcepath.
+ * Генерация повторяется, только когда меняются аннотированные исходники на диске.
+ * Проверки многомодульного проекта идут с моделью модуля, поэтому найденные
+ * процессоры и сверка штампа хранятся отдельно для каждого отпечатка.
+ * Методы синхронизированы: withGeneratedSources вызывается до входа в
+ * {@link CompilerSession} (от неё зависит ключ файлового менеджера), prepare - уже
+ * под её замком, из планировщика редактора и фоновой проверки одновременно.
+ */
+final class AnnotationProcessing {
+    private static final String SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+    private static final Pattern ANNOTATION = Pattern.compile("@\\s*([A-Za-z_$][\\w$.]*)");
+    // interface - это объявление аннотации (@interface), а не её использование
+    private static final Set<String> PLATFORM_ANNOTATIONS = Set.of(
+            "Override", "Deprecated", "SuppressWarnings", "FunctionalInterface", "SafeVarargs", "interface");
+
+    /** Процессоры одной модели (проекта или модуля) и состояние её кэша. */
+    private static final class Scope {
+        private final List<String> inPlace;
+        private final List<String> generating;
+        // Номер изменения исходников, на котором сверялся штамп; -1 - ещё не сверялся
+        private long checkedAt = -1;
+
+        private Scope(List<String> inPlace, List<String> generating) {
+            this.inPlace = inPlace;
+            this.generating = generating;
+        }
+    }
+
+    private final JavaCompiler compiler;
+    private final Consumer<String> log;
+    // Ключ - отпечаток модели
+    private final Map<String, Scope> scopes = new HashMap<>();
+    // Растёт при каждом изменении исходников на диске; без замка - зовётся из наблюдателя файлов
+    private final AtomicLong sourceChanges = new AtomicLong();
+
+    AnnotationProcessing(JavaCompiler compiler, Consumer<String> log) {
+        this.compiler = compiler;
+        this.log = log;
+    }
+
+    void sourcesChanged() {
+        sourceChanges.incrementAndGet();
+    }
+
+    /** Модель для сессии: к sourceRoots добавлен каталог сгенерированных исходников. */
+    synchronized ProjectModelResolver.ProjectModel withGeneratedSources(ProjectModelResolver.ProjectModel model) {
+        if (discover(model).generating.isEmpty()) return model;
+        Path dir = generatedDir(model);
+        try {
+            // Каталог должен существовать до открытия файлового менеджера сессии
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            return model;
+        }
+        List<Path> roots = new ArrayList<>(model.sourceRoots);
+        roots.add(dir);
+        return new ProjectModelResolver.ProjectModel(roots, model.classpath);
+    }
+
+    /**
+     * Перегенерирует исходники, если изменились аннотированные входы, и возвращает
+     * имена процессоров, которые надо запускать в самой проверке.
+     */
+    synchronized List<String> prepare(ProjectModelResolver.ProjectModel model) {
+        Scope scope = discover(model);
+        long changes = sourceChanges.get();
+        if (!scope.generating.isEmpty() && scope.checkedAt != changes) {
+            scope.checkedAt = changes;
+            try {
+                regenerateIfStale(model);
+            } catch (IOException | RuntimeException e) {
+                scope.checkedAt = -1;
+                log.accept("[diagnostics] Annotation processing failed: " + e.getMessage());
+            }
+        }
+        return scope.inPlace;
+    }
+
+    /**
+     * Модель проекта сменилась: забываются процессоры прежних моделей и удаляются
+     * каталоги ~/.f_ex/apt, не принадлежащие ни самой модели, ни её модулям.
+     */
+    synchronized void retain(ProjectModelResolver.ProjectModel model) {
+        Set<String> keep = new HashSet<>();
+        for (ProjectModelResolver.ProjectModel m : model.moduleScopes()) keep.add(m.fingerprint());
+        scopes.keySet().retainAll(keep);
+        Set<String> dirs = new HashSet<>();
+        for (String fp : keep) dirs.add(fp.substring(0, 16));
+        Path apt = aptRoot();
+        if (!Files.isDirectory(apt)) return;
+        try (Stream<Path> s = Files.list(apt)) {
+            for (Path dir : s.toList()) {
+                if (!dirs.contains(dir.getFileName().toString())) deleteTree(dir);
+            }
+        } catch (IOException e) {
+            log.accept("[diagnostics] Failed to clean annotation processing cache: " + e.getMessage());
+        }
+    }
+
+    private Scope discover(ProjectModelResolver.ProjectModel model) {
+        String fp = model.fingerprint();
+        Scope known = scopes.get(fp);
+        if (known != null) return known;
+        List<String> lombok = new ArrayList<>();
+        List<String> other = new ArrayList<>();
+        for (Path entry : model.classpath) {
+            for (String name : processorsIn(entry)) {
+                // Lombok ничего не генерирует, а правит AST - кэшировать нечего
+                (name.startsWith("lombok.") ? lombok : other).add(name);
+            }
+        }
+        Scope scope = new Scope(List.copyOf(lombok), List.copyOf(other));
+        scopes.put(fp, scope);
+        if (!lombok.isEmpty() || !other.isEmpty()) {
+            log.accept("[diagnostics] Annotation processors: " + lombok.size() + " in-place, " + other.size() + " generating");
+        }
+        return scope;
+    }
+
+    private void regenerateIfStale(ProjectModelResolver.ProjectModel model) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        MessageDigest md = sha256();
+        for (Path root : model.sourceRoots) {
+            if (!Files.isDirectory(root)) continue;
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(root)) {
+                files = s.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p)).sorted().toList();
+            }
+            for (Path p : files) {
+                String content = Files.readString(p, StandardCharsets.UTF_8);
+                if (!hasProcessableAnnotation(content)) continue;
+                inputs.add(p);
+                md.update(p.toString().getBytes(StandardCharsets.UTF_8));
+                md.update(content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        String stamp = HexFormat.of().formatHex(md.digest());
+        Path dir = generatedDir(model);
+        Path stampFile = dir.resolveSibling("stamp");
+        if (Files.isDirectory(dir) && Files.exists(stampFile) && stamp.equals(Files.readString(stampFile))) return;
+
+        long start = System.nanoTime();
+        // Сам каталог остаётся на месте: он уже в sourcepath открытой сессии
+        Files.createDirectories(dir);
+        try (Stream<Path> s = Files.list(dir)) {
+            for (Path p : s.toList()) deleteTree(p);
+        }
+        Files.deleteIfExists(stampFile);
+        int generated = inputs.isEmpty() ? 0 : generate(model, inputs, dir);
+        Files.writeString(stampFile, stamp);
+        log.accept("[diagnostics] Annotation processors generated " + generated + " sources from "
+                + inputs.size() + " files in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private int generate(ProjectModelResolver.ProjectModel model, List<Path> inputs, Path dir) throws IOException {
+        Path classes = Files.createTempDirectory("f_ex_apt_");
+        try (StandardJavaFileManager fm = compiler.getStandardFileManager(null, Locale.ENGLISH, StandardCharsets.UTF_8)) {
+            if (!model.sourceRoots.isEmpty()) fm.setLocationFromPaths(StandardLocation.SOURCE_PATH, model.sourceRoots);
+            if (!model.classpath.isEmpty()) {
+                fm.setLocationFromPaths(StandardLocation.CLASS_PATH, model.classpath);
+                fm.setLocationFromPaths(StandardLocation.ANNOTATION_PROCESSOR_PATH, model.classpath);
+            }
+            fm.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT, List.of(dir));
+            fm.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(classes));
+            // Ошибки здесь не интересны - их покажет сама проверка
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fm, new DiagnosticCollector<JavaFileObject>(),
+                    List.of("-proc:only", "-implicit:none", "-encoding", "UTF-8"), null, fm.getJavaFileObjectsFromPaths(inputs));
+            task.call();
+        } finally {
+            deleteTree(classes);
+        }
+        AtomicInteger count = new AtomicInteger();
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.filter(p -> p.toString().endsWith(".java")).forEach(p -> count.incrementAndGet());
+        }
+        return count.get();
+    }
+
+    private static boolean hasProcessableAnnotation(String content) {
+        Matcher m = ANNOTATION.matcher(content);
+        while (m.find()) {
+            String name = m.group(1);
+            String simple = name.substring(name.lastIndexOf('.') + 1);
+            if (!PLATFORM_ANNOTATIONS.contains(simple)) return true;
+        }
+        return false;
+    }
+
+    private static List<String> processorsIn(Path entry) {
+        try {
+            if (Files.isDirectory(entry)) {
+                Path service = entry.resolve(SERVICE);
+                return Files.exists(service) ? readNames(Files.newInputStream(service)) : List.of();
+            }
+            if (!Files.isRegularFile(entry)) return List.of();
+            try (ZipFile zip = new ZipFile(entry.toFile())) {
+                ZipEntry e = zip.getEntry(SERVICE);
+                return e == null ? List.of() : readNames(zip.getInputStream(e));
+            }
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private static List<String> readNames(InputStream in) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int hash = line.indexOf('#');
+                String name = (hash >= 0 ? line.substring(0, hash) : line).trim();
+                if (!name.isEmpty()) names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static Path generatedDir(ProjectModelResolver.ProjectModel model) {
+        return aptRoot().resolve(model.fingerprint().substring(0, 16)).resolve("src");
+    }
+
+    private static Path aptRoot() {
+        return Paths.get(System.getProperty("user.home")).resolve(".f_ex").resolve("apt");
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> s = Files.walk(root)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
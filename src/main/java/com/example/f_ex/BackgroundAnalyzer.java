@@ -0,0 +1,237 @@
+package com.example.f_ex;
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Фоновая проверка всего проекта. После загрузки модели один раз проходит по всем
+ * исходникам, дальше при изменении файла на диске перепроверяет только его и
+ * файлы, которые от него зависят (по {@link DependencyGraph}); правка в редакторе
+ * перепроверяет зависимые с текущим текстом буфера, не дожидаясь сохранения.
+ * Очередь проверяется пачками одной задачей javac. Работает в одном потоке с
+ * минимальным приоритетом; результаты отдаются пачками в поток FX.
+ */
+final class BackgroundAnalyzer {
+    private static final long FLUSH_INTERVAL_NANOS = 500_000_000L;
+    private static final int BATCH_SIZE = 32;
+
+    private final DiagnosticsScheduler.BatchChecker checker;
+    private final Consumer<Map<Path, List<Problem>>> publisher;
+    private final Runnable onReset;
+    // Несохранённые буферы редактора: проверки видят их вместо текста на диске
+    private final Map<Path, String> overlays = new ConcurrentHashMap<>();
+    private final DependencyGraph graph = new DependencyGraph();
+    // Изменённые файлы и их зависимые идут раньше первоначального обхода
+    private final Set<Path> urgent = new LinkedHashSet<>();
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private final ThreadPoolExecutor worker;
+    private boolean drainScheduled;
+    private volatile long epoch;
+    private volatile List<Path> sourceRoots = List.of();
+
+    /** onReset - в потоке FX при смене модели, раньше любых результатов новой модели. */
+    BackgroundAnalyzer(DiagnosticsScheduler.BatchChecker checker, Consumer<Map<Path, List<Problem>>> publisher,
+                       Runnable onReset) {
+        this.checker = checker;
+        this.publisher = publisher;
+        this.onReset = onReset;
+        this.worker = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "background-analyzer");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        this.worker.allowCoreThreadTimeOut(true);
+    }
+
+    /** Новая модель проекта: строим граф заново и ставим в очередь все исходники. */
+    void reset(List<Path> roots) {
+        long myEpoch;
+        synchronized (pending) {
+            myEpoch = ++epoch;
+            urgent.clear();
+            pending.clear();
+            sourceRoots = List.copyOf(roots);
+        }
+        // Замечания прежней модели (или прежнего проекта) больше не актуальны
+        Platform.runLater(onReset);
+        worker.execute(() -> {
+            if (epoch != myEpoch) return;
+            overlays.keySet().removeIf(p -> !isUnderSourceRoots(p));
+            graph.clear();
+            List<Path> all = new ArrayList<>();
+            for (Path root : sourceRoots) {
+                try (Stream<Path> s = Files.walk(root)) {
+                    s.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                            .forEach(p -> all.add(p.normalize().toAbsolutePath()));
+                } catch (IOException ignored) {
+                }
+            }
+            for (Path p : all) {
+                if (epoch != myEpoch) return;
+                String content = contentOf(p);
+                if (content != null) graph.update(p, content);
+            }
+            enqueue(all, false);
+        });
+    }
+
+    /** Исходник изменился на диске; вызывать можно из любого потока. */
+    void fileChanged(Path file) {
+        Path abs = file.normalize().toAbsolutePath();
+        if (!isUnderSourceRoots(abs)) return;
+        // После сохранения источник истины снова диск
+        overlays.remove(abs);
+        // Граф обновляем сразу, не дожидаясь окончания идущего обхода
+        String content = read(abs);
+        // Удалённый файл тоже проверяется: пустой результат уберёт его замечания
+        Set<Path> affected = new LinkedHashSet<>();
+        affected.add(abs);
+        affected.addAll(content == null ? graph.remove(abs) : graph.update(abs, content));
+        enqueue(affected, true);
+    }
+
+    /**
+     * Текст несохранённого буфера изменился: зависимые файлы перепроверяются с ним.
+     * Сам файл проверяет DiagnosticsScheduler редактора.
+     */
+    void bufferChanged(Path file, String content) {
+        Path abs = file.normalize().toAbsolutePath();
+        if (!isUnderSourceRoots(abs)) return;
+        overlays.put(abs, content);
+        enqueue(graph.update(abs, content), true);
+    }
+
+    /** Буфер закрыт без сохранения: зависимые снова проверяются с текстом на диске. */
+    void bufferDiscarded(Path file) {
+        Path abs = file.normalize().toAbsolutePath();
+        if (overlays.remove(abs) == null) return;
+        String content = read(abs);
+        enqueue(content == null ? graph.remove(abs) : graph.update(abs, content), true);
+    }
+
+    private void enqueue(Iterable<Path> files, boolean first) {
+        synchronized (pending) {
+            for (Path p : files) {
+                if (first) {
+                    pending.remove(p);
+                    urgent.add(p);
+                } else if (!urgent.contains(p)) {
+                    pending.add(p);
+                }
+            }
+            if (drainScheduled || (urgent.isEmpty() && pending.isEmpty())) return;
+            drainScheduled = true;
+        }
+        worker.execute(this::drain);
+    }
+
+    private void drain() {
+        Map<Path, List<Problem>> batch = new LinkedHashMap<>();
+        long batchEpoch = epoch;
+        long lastFlush = System.nanoTime();
+        while (true) {
+            List<Path> next = new ArrayList<>(BATCH_SIZE);
+            long myEpoch;
+            synchronized (pending) {
+                // Срочные (изменённые и их зависимые) уходят отдельной пачкой впереди обхода
+                Set<Path> from = !urgent.isEmpty() ? urgent : pending;
+                if (from.isEmpty()) {
+                    drainScheduled = false;
+                    break;
+                }
+                Iterator<Path> it = from.iterator();
+                while (it.hasNext() && next.size() < BATCH_SIZE) {
+                    next.add(it.next());
+                    it.remove();
+                }
+                myEpoch = epoch;
+            }
+            if (myEpoch != batchEpoch) {
+                flush(batch, batchEpoch);
+                batch = new LinkedHashMap<>();
+                batchEpoch = myEpoch;
+            }
+            BooleanSupplier cancelled = () -> epoch != myEpoch;
+            Map<Path, List<Problem>> checked = checkBatch(next, cancelled);
+            if (checked == null || cancelled.getAsBoolean()) continue;
+            batch.putAll(checked);
+            if (System.nanoTime() - lastFlush > FLUSH_INTERVAL_NANOS) {
+                flush(batch, batchEpoch);
+                batch = new LinkedHashMap<>();
+                lastFlush = System.nanoTime();
+            }
+        }
+        flush(batch, batchEpoch);
+    }
+
+    /** Одна задача javac на пачку; null - проверка не удалась или отменена. */
+    private Map<Path, List<Problem>> checkBatch(List<Path> files, BooleanSupplier cancelled) {
+        Map<Path, List<Problem>> result = new LinkedHashMap<>();
+        Map<Path, String> buffers = new LinkedHashMap<>();
+        for (Path file : files) {
+            String content = contentOf(file);
+            // Удалённый файл: пустой результат уберёт его замечания
+            if (content == null) result.put(file, List.of());
+            else buffers.put(file, content);
+        }
+        if (buffers.isEmpty()) return result;
+        // Несохранённые буферы идут в ту же задачу, чтобы зависимые видели их текущий текст
+        Map<Path, String> units = new LinkedHashMap<>(buffers);
+        overlays.forEach(units::putIfAbsent);
+        Map<Path, List<Problem>> checked;
+        try {
+            checked = checker.check(units, cancelled);
+        } catch (Exception e) {
+            return null;
+        }
+        for (Path file : buffers.keySet()) result.put(file, checked.getOrDefault(file, List.of()));
+        return result;
+    }
+
+    private String contentOf(Path file) {
+        String overlay = overlays.get(file);
+        return overlay != null ? overlay : read(file);
+    }
+
+    private void flush(Map<Path, List<Problem>> batch, long batchEpoch) {
+        if (batch.isEmpty()) return;
+        Platform.runLater(() -> {
+            if (epoch == batchEpoch) publisher.accept(batch);
+        });
+    }
+
+    private boolean isUnderSourceRoots(Path file) {
+        if (!file.toString().endsWith(".java")) return false;
+        for (Path root : sourceRoots) {
+            if (file.startsWith(root.normalize().toAbsolutePath())) return true;
+        }
+        return false;
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
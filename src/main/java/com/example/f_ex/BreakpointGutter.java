@@ -0,0 +1,113 @@
+package com.example.f_ex;
+
+import javafx.beans.Observable;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.Text;
+import org.fxmisc.richtext.CodeArea;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Гуттер редактора: номер строки и маркер точки останова.
+ * Узлы строк переиспользуются: отсоединённый от абзаца узел возвращается в пул
+ * и отдаётся следующей отрисованной строке. Точки останова файла хранятся в BitSet
+ * (бит = номер строки с 1), переключение перерисовывает только маркер этой строки.
+ */
+final class BreakpointGutter implements IntFunction<Node> {
+    private static final String MARKER_ON = "-fx-fill: #e51400;";
+    private static final String MARKER_OFF = "-fx-fill: transparent;";
+    // Те же значения, что у LineNumberFactory
+    private static final Insets LINENO_INSETS = new Insets(0.0, 5.0, 0.0, 5.0);
+    private static final Color LINENO_FILL = Color.web("#666");
+    private static final Font LINENO_FONT = Font.font("monospace", FontPosture.ITALIC, 13);
+    private static final Background LINENO_BACKGROUND = new Background(new BackgroundFill(Color.web("#ddd"), null, null));
+
+    private final BitSet breakpoints;
+    private final IntConsumer onToggle;
+    private final ArrayDeque<Cell> free = new ArrayDeque<>();
+    private final Map<Integer, Cell> live = new HashMap<>();
+    private int digits;
+
+    private final class Cell {
+        private final Text dot = new Text("●");
+        private final Label lineNo = new Label();
+        private final HBox box = new HBox(6, dot, lineNo);
+        private int line;
+
+        private Cell() {
+            lineNo.setFont(LINENO_FONT);
+            lineNo.setBackground(LINENO_BACKGROUND);
+            lineNo.setTextFill(LINENO_FILL);
+            lineNo.setPadding(LINENO_INSETS);
+            lineNo.setAlignment(Pos.TOP_RIGHT);
+            lineNo.getStyleClass().add("lineno");
+            box.setOnMouseClicked(e -> {
+                onToggle.accept(line);
+                updateMarker();
+            });
+            box.parentProperty().addListener((obs, old, parent) -> {
+                if (parent == null) release(this);
+            });
+        }
+
+        private void show(int line) {
+            this.line = line;
+            updateNumber();
+            updateMarker();
+        }
+
+        private void updateNumber() {
+            lineNo.setText(String.format("%" + digits + "d", line));
+        }
+
+        private void updateMarker() {
+            dot.setStyle(breakpoints.get(line) ? MARKER_ON : MARKER_OFF);
+        }
+    }
+
+    BreakpointGutter(CodeArea area, BitSet breakpoints, IntConsumer onToggle) {
+        this.breakpoints = breakpoints;
+        this.onToggle = onToggle;
+        this.digits = digitsFor(area.getParagraphs().size());
+        // Ширина номеров меняется только при смене разрядности числа строк
+        area.getParagraphs().addListener((Observable o) -> {
+            int d = digitsFor(area.getParagraphs().size());
+            if (d == digits) return;
+            digits = d;
+            for (Cell c : live.values()) c.updateNumber();
+        });
+    }
+
+    @Override
+    public Node apply(int paragraph) {
+        Cell cell = free.poll();
+        while (cell != null && cell.box.getParent() != null) cell = free.poll();
+        if (cell == null) cell = new Cell();
+        cell.show(paragraph + 1);
+        live.put(cell.line, cell);
+        return cell.box;
+    }
+
+    private void release(Cell cell) {
+        live.remove(cell.line, cell);
+        free.push(cell);
+    }
+
+    private static int digitsFor(int paragraphs) {
+        return Math.max(1, String.valueOf(paragraphs).length());
+    }
+}
@@ -1,19 +1,27 @@
 package com.example.f_ex;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
- * Индексатор кода для быстрого поиска классов, методов, переменных
+ * Индексатор кода для быстрого поиска классов, методов, переменных.
+ * Заодно для каждого файла запоминаются факты для запуска (есть ли main,
+ * импортируется ли JavaFX), чтобы не перечитывать исходники при нажатии Run.
  */
 public class CodeIndexer {
     private final Path projectRoot;
+    // Списки не меняются на месте, а заменяются целиком: читаются из FX-потока
     private final Map<String, List<CodeElement>> index = new ConcurrentHashMap<>();
+    private final Map<Path, List<CodeElement>> elementsByFile = new ConcurrentHashMap<>();
+    private final Map<Path, FileFacts> facts = new ConcurrentHashMap<>();
+    private volatile boolean ready;
     private static final Set<String> HIDDEN_DIRS = Set.of(
         "build", ".gradle", ".idea", ".git", "out", "bin", 
         ".vscode", "node_modules", ".classpath", ".project"
@@ -29,55 +37,174 @@ public class CodeIndexer {
     private static final Pattern METHOD_PATTERN = Pattern.compile(
         "\\b(?:public|private|protected)\\s+(?:static\\s+)?(?:final\\s+)?(?:\\w+\\s+)*(\\w+)\\s*\\([^)]*\\)"
     );
+    private static final Pattern MAIN_PATTERN = Pattern.compile(
+        "\\b(?:public\\s+static|static\\s+public)\\s+(?:final\\s+)?void\\s+main\\s*\\(\\s*(?:final\\s+)?String\\s*(?:\\[\\s*]|\\.\\.\\.)?\\s*\\w+\\s*(?:\\[\\s*])?\\s*\\)"
+    );
     
     public CodeIndexer(Path projectRoot) {
         this.projectRoot = projectRoot;
     }
     
     public void indexProject() {
+        ready = false;
         index.clear();
+        elementsByFile.clear();
+        facts.clear();
         if (projectRoot == null || !Files.isDirectory(projectRoot)) {
+            ready = true;
             return;
         }
         
-        try {
-            Files.walk(projectRoot, 20)
-                    .filter(Files::isRegularFile)
+        indexTree(projectRoot);
+        ready = true;
+    }
+    
+    /** Первый полный проход закончен, запросы фактов отвечают за весь проект. */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Обновляет индекс по событию файловой системы: файл перечитывается,
+     * удалённый файл или каталог убирается, новый каталог индексируется целиком.
+     *
+     * @return true, если изменился список точек входа (main или тип приложения)
+     */
+    public boolean fileChanged(Path path) {
+        Path file = key(path);
+        if (Files.isDirectory(file)) {
+            if (shouldHidePath(file)) return false;
+            indexTree(file);
+            return !mainClasses(file).isEmpty();
+        }
+        if (Files.isRegularFile(file)) {
+            if (!file.toString().endsWith(".java") || shouldHidePath(file.getParent())) return false;
+            FileFacts old = facts.get(file);
+            indexFile(file);
+            FileFacts now = facts.get(file);
+            return old == null ? now != null && now.hasMain : !old.sameEntryPoint(now);
+        }
+        boolean changed = false;
+        for (Path p : new ArrayList<>(facts.keySet())) {
+            if (p.startsWith(file)) {
+                FileFacts old = removeFile(p);
+                changed |= old != null && old.hasMain;
+            }
+        }
+        return changed;
+    }
+    
+    private void indexTree(Path dir) {
+        try (Stream<Path> files = Files.walk(dir, 20)) {
+            files.filter(Files::isRegularFile)
                     .filter(p -> p.toString().endsWith(".java"))
                     .filter(p -> !shouldHidePath(p.getParent()))
-                    .forEach(this::indexFile);
-        } catch (IOException e) {
+                    .forEach(p -> indexFile(key(p)));
+        } catch (IOException | UncheckedIOException e) {
             // Игнорируем ошибки индексации
         }
     }
     
     private void indexFile(Path file) {
+        String content;
         try {
-            String content = Files.readString(file, StandardCharsets.UTF_8);
-            String packageName = extractPackage(content);
-            
-            Matcher classMatcher = CLASS_PATTERN.matcher(content);
-            while (classMatcher.find()) {
-                String className = classMatcher.group(1);
-                addToIndex(className, CodeElementType.CLASS, file, packageName, lineAt(content, classMatcher.start(1)));
-            }
-            
-            Matcher interfaceMatcher = INTERFACE_PATTERN.matcher(content);
-            while (interfaceMatcher.find()) {
-                String interfaceName = interfaceMatcher.group(1);
-                addToIndex(interfaceName, CodeElementType.INTERFACE, file, packageName, lineAt(content, interfaceMatcher.start(1)));
-            }
-            
-            Matcher methodMatcher = METHOD_PATTERN.matcher(content);
-            while (methodMatcher.find()) {
-                String methodName = methodMatcher.group(methodMatcher.groupCount());
-                if (methodName != null && !methodName.equals("class") && !methodName.equals("interface")) {
-                    addToIndex(methodName, CodeElementType.METHOD, file, packageName, lineAt(content, methodMatcher.start(methodMatcher.groupCount())));
-                }
-            }
-            
+            content = Files.readString(file, StandardCharsets.UTF_8);
         } catch (IOException e) {
+            removeFile(file);
+            return;
+        }
+        String packageName = extractPackage(content);
+        LineIndex lines = LineIndex.of(content);
+        List<CodeElement> elements = new ArrayList<>();
+        
+        Matcher classMatcher = CLASS_PATTERN.matcher(content);
+        while (classMatcher.find()) {
+            String className = classMatcher.group(1);
+            elements.add(new CodeElement(className, CodeElementType.CLASS, file, packageName, lines.lineOf(classMatcher.start(1)) + 1));
+        }
+        
+        Matcher interfaceMatcher = INTERFACE_PATTERN.matcher(content);
+        while (interfaceMatcher.find()) {
+            String interfaceName = interfaceMatcher.group(1);
+            elements.add(new CodeElement(interfaceName, CodeElementType.INTERFACE, file, packageName, lines.lineOf(interfaceMatcher.start(1)) + 1));
         }
+        
+        Matcher methodMatcher = METHOD_PATTERN.matcher(content);
+        while (methodMatcher.find()) {
+            String methodName = methodMatcher.group(methodMatcher.groupCount());
+            if (methodName != null && !methodName.equals("class") && !methodName.equals("interface")) {
+                elements.add(new CodeElement(methodName, CodeElementType.METHOD, file, packageName, lines.lineOf(methodMatcher.start(methodMatcher.groupCount())) + 1));
+            }
+        }
+        
+        removeElements(file);
+        elementsByFile.put(file, elements);
+        for (CodeElement e : elements) addToIndex(e);
+        facts.put(file, analyze(content));
+    }
+    
+    private FileFacts removeFile(Path file) {
+        removeElements(file);
+        return facts.remove(file);
+    }
+    
+    private void removeElements(Path file) {
+        List<CodeElement> old = elementsByFile.remove(file);
+        if (old == null) return;
+        for (CodeElement e : old) {
+            index.computeIfPresent(e.getName().toLowerCase(), (k, list) -> {
+                List<CodeElement> rest = new ArrayList<>(list.size());
+                for (CodeElement x : list) if (!x.getFile().equals(file)) rest.add(x);
+                return rest.isEmpty() ? null : rest;
+            });
+        }
+    }
+    
+    /** Факты о файле по его тексту; для файлов вне индекса (например, несохранённых). */
+    public static FileFacts analyze(String content) {
+        boolean hasMain = MAIN_PATTERN.matcher(content).find();
+        boolean usesJavaFX = content.contains("javafx.");
+        boolean gui = usesJavaFX ||
+                      content.contains("extends Application") ||
+                      content.contains("Application.launch") ||
+                      content.contains("javax.swing") ||
+                      content.contains("JFrame") ||
+                      content.contains("JDialog") ||
+                      content.contains("JWindow") ||
+                      content.contains("JApplet") ||
+                      (content.contains("java.awt") &&
+                       (content.contains("Frame") || content.contains("Window") ||
+                        content.contains("Dialog") || content.contains("Applet")));
+        return new FileFacts(hasMain, usesJavaFX, gui);
+    }
+    
+    /** Факты о проиндексированном файле или null. */
+    public FileFacts factsOf(Path file) {
+        return file == null ? null : facts.get(key(file));
+    }
+    
+    /** Файлы с методом main под корнем, в стабильном порядке. */
+    public List<Path> mainClasses(Path root) {
+        Path r = key(root);
+        List<Path> result = new ArrayList<>();
+        for (Map.Entry<Path, FileFacts> e : facts.entrySet()) {
+            if (e.getValue().hasMain && e.getKey().startsWith(r)) result.add(e.getKey());
+        }
+        result.sort(null);
+        return result;
+    }
+    
+    /** Импортирует ли JavaFX хотя бы один файл под корнем. */
+    public boolean usesJavaFX(Path root) {
+        Path r = key(root);
+        for (Map.Entry<Path, FileFacts> e : facts.entrySet()) {
+            if (e.getValue().usesJavaFX && e.getKey().startsWith(r)) return true;
+        }
+        return false;
+    }
+    
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
     }
     
     private String extractPackage(String content) {
@@ -89,22 +216,15 @@ public class CodeIndexer {
         return "";
     }
     
-    private void addToIndex(String name, CodeElementType type, Path file, String packageName, int line) {
-        index.computeIfAbsent(name.toLowerCase(), k -> new ArrayList<>())
-                .add(new CodeElement(name, type, file, packageName, line));
+    private void addToIndex(CodeElement element) {
+        index.compute(element.getName().toLowerCase(), (k, list) -> {
+            List<CodeElement> copy = list == null ? new ArrayList<>(1) : new ArrayList<>(list.size() + 1);
+            if (list != null) copy.addAll(list);
+            copy.add(element);
+            return copy;
+        });
     }
 
-    private static int lineAt(String s, int offset) {
-        if (s == null || s.isEmpty()) return 1;
-        if (offset < 0) return 1;
-        int line = 1;
-        int max = Math.min(offset, s.length());
-        for (int i = 0; i < max; i++) {
-            if (s.charAt(i) == '\n') line++;
-        }
-        return line;
-    }
-    
     public List<CodeElement> findCompletions(String prefix) {
         if (prefix == null || prefix.isEmpty()) {
             return new ArrayList<>();
@@ -130,12 +250,37 @@ public class CodeIndexer {
         return results;
     }
     
+    /** Только элементы из файлов под указанными корнями исходников. */
+    public List<CodeElement> findCompletions(String prefix, Collection<Path> roots) {
+        List<CodeElement> results = findCompletions(prefix);
+        results.removeIf(e -> roots.stream().noneMatch(r -> e.getFile().toAbsolutePath().normalize().startsWith(r)));
+        return results;
+    }
+    
     public static boolean shouldHidePath(Path path) {
         if (path == null) return true;
         String name = path.getFileName() != null ? path.getFileName().toString() : path.toString();
         return HIDDEN_DIRS.contains(name) || name.startsWith(".");
     }
     
+    /** Что нужно знать о файле для выбора точки запуска. */
+    public static final class FileFacts {
+        public final boolean hasMain;
+        public final boolean usesJavaFX;
+        /** Swing/AWT/JavaFX - оконное приложение. */
+        public final boolean gui;
+        
+        FileFacts(boolean hasMain, boolean usesJavaFX, boolean gui) {
+            this.hasMain = hasMain;
+            this.usesJavaFX = usesJavaFX;
+            this.gui = gui;
+        }
+        
+        boolean sameEntryPoint(FileFacts other) {
+            return other != null && hasMain == other.hasMain && (!hasMain || gui == other.gui);
+        }
+    }
+    
     public enum CodeElementType {
         CLASS, INTERFACE, METHOD, VARIABLE
     }
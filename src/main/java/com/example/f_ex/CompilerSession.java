@@ -0,0 +1,109 @@
+package com.example.f_ex;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Долгоживущая сессия компилятора. Держит открытыми StandardJavaFileManager (и
+ * прочитанные ими JAR-архивы classpath) между запусками диагностики - по одному на
+ * набор sourceRoots и classpath; в многомодульном проекте это несколько последних
+ * модулей, вытесняемых по LRU. Файловый менеджер javac не потокобезопасен, поэтому
+ * запуски идут по одному.
+ */
+final class CompilerSession {
+    interface Work<T> {
+        T run(StandardJavaFileManager fileManager) throws IOException;
+    }
+
+    private final JavaCompiler compiler;
+    private final Consumer<String> log;
+    private final Object lock = new Object();
+
+    private static final int MAX_FILE_MANAGERS = 4;
+
+    // Ключ - пара (sourceRoots, classpath); порядок доступа даёт LRU
+    private final LinkedHashMap<List<List<Path>>, StandardJavaFileManager> fileManagers = new LinkedHashMap<>(8, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long hitNanos;
+    private long missNanos;
+
+    CompilerSession(JavaCompiler compiler, Consumer<String> log) {
+        this.compiler = compiler;
+        this.log = log;
+    }
+
+    <T> T run(ProjectModelResolver.ProjectModel model, Work<T> work) throws IOException {
+        List<Path> roots = model != null ? model.sourceRoots : List.of();
+        List<Path> cp = model != null ? model.classpath : List.of();
+        synchronized (lock) {
+            List<List<Path>> key = List.of(List.copyOf(roots), List.copyOf(cp));
+            StandardJavaFileManager fileManager = fileManagers.get(key);
+            boolean hit = fileManager != null;
+            if (!hit) fileManager = open(key);
+            long start = System.nanoTime();
+            try {
+                return work.run(fileManager);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (hit) {
+                    hits++;
+                    hitNanos += elapsed;
+                } else {
+                    misses++;
+                    missNanos += elapsed;
+                }
+            }
+        }
+    }
+
+    /** Сбросить файловый менеджер, например если JAR-файлы classpath пересобраны на месте. */
+    void invalidate() {
+        synchronized (lock) {
+            for (StandardJavaFileManager fm : fileManagers.values()) close(fm);
+            fileManagers.clear();
+        }
+    }
+
+    String stats() {
+        synchronized (lock) {
+            long avgHit = hits == 0 ? 0 : hitNanos / hits / 1_000_000;
+            long avgMiss = misses == 0 ? 0 : missNanos / misses / 1_000_000;
+            long saved = hits == 0 || misses == 0 ? 0 : Math.max(0, avgMiss - avgHit) * hits;
+            return "compiler session: " + hits + " hits (avg " + avgHit + " ms), "
+                    + misses + " misses (avg " + avgMiss + " ms), ~" + saved + " ms saved";
+        }
+    }
+
+    private StandardJavaFileManager open(List<List<Path>> key) throws IOException {
+        if (fileManagers.size() >= MAX_FILE_MANAGERS) {
+            Iterator<Map.Entry<List<List<Path>>, StandardJavaFileManager>> eldest = fileManagers.entrySet().iterator();
+            close(eldest.next().getValue());
+            eldest.remove();
+            if (log != null) log.accept("[diagnostics] Project model changed, reopening classpath (" + stats() + ")");
+        }
+        StandardJavaFileManager fm = compiler.getStandardFileManager(null, Locale.ENGLISH, StandardCharsets.UTF_8);
+        if (!key.get(0).isEmpty()) fm.setLocationFromPaths(StandardLocation.SOURCE_PATH, key.get(0));
+        if (!key.get(1).isEmpty()) fm.setLocationFromPaths(StandardLocation.CLASS_PATH, key.get(1));
+        fileManagers.put(key, fm);
+        return fm;
+    }
+
+    private static void close(StandardJavaFileManager fm) {
+        try {
+            fm.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.f_ex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Строки консоли в кольце из блоков по CHUNK строк. Добавление в конец - O(1),
+ * при превышении лимита вытесняются самые старые строки, освободившийся блок
+ * отдаётся целиком. Используется только из FX-потока.
+ */
+final class ConsoleBuffer {
+    static final int CHUNK = 4096;
+
+    private final List<String[]> chunks = new ArrayList<>();
+    // Позиция строки 0 в первом блоке
+    private int first;
+    private int size;
+    private int maxLines;
+    private long evicted;
+
+    ConsoleBuffer(int maxLines) {
+        this.maxLines = Math.max(1, maxLines);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int maxLines() {
+        return maxLines;
+    }
+
+    /** Сколько строк вытеснено с начала работы (или с последней очистки). */
+    long evicted() {
+        return evicted;
+    }
+
+    String get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        int pos = first + index;
+        return chunks.get(pos / CHUNK)[pos % CHUNK];
+    }
+
+    /** @return сколько строк вытеснено этим добавлением */
+    int add(String line) {
+        int pos = first + size;
+        if (pos / CHUNK == chunks.size()) chunks.add(new String[CHUNK]);
+        chunks.get(pos / CHUNK)[pos % CHUNK] = line;
+        size++;
+        return size > maxLines ? evict(size - maxLines) : 0;
+    }
+
+    /** @return сколько строк вытеснено */
+    int setMaxLines(int maxLines) {
+        this.maxLines = Math.max(1, maxLines);
+        return size > this.maxLines ? evict(size - this.maxLines) : 0;
+    }
+
+    void clear() {
+        chunks.clear();
+        first = 0;
+        size = 0;
+        evicted = 0;
+    }
+
+    /**
+     * Номер ближайшей строки, содержащей query, начиная с from (включительно) в
+     * направлении поиска, с переходом через край; -1 - не найдено.
+     */
+    int find(String query, int from, boolean forward, boolean ignoreCase) {
+        if (query.isEmpty() || size == 0) return -1;
+        int start = Math.floorMod(from, size);
+        for (int n = 0; n < size; n++) {
+            int i = forward ? (start + n) % size : Math.floorMod(start - n, size);
+            if (contains(get(i), query, ignoreCase)) return i;
+        }
+        return -1;
+    }
+
+    /** Строки [from, to) через '\n' - для копирования. */
+    String text(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        int start = Math.max(0, from);
+        for (int i = start; i < Math.min(to, size); i++) {
+            if (i > start) sb.append('\n');
+            sb.append(get(i));
+        }
+        return sb.toString();
+    }
+
+    private int evict(int count) {
+        for (int n = 0; n < count; n++) {
+            chunks.get(0)[first] = null;
+            if (++first == CHUNK) {
+                chunks.remove(0);
+                first = 0;
+            }
+        }
+        size -= count;
+        evicted += count;
+        return count;
+    }
+
+    // Без toLowerCase: поиск по миллиону строк не должен создавать миллион копий
+    private static boolean contains(String line, String query, boolean ignoreCase) {
+        if (!ignoreCase) return line.contains(query);
+        int last = line.length() - query.length();
+        for (int i = 0; i <= last; i++) {
+            if (line.regionMatches(true, i, query, 0, query.length())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.f_ex;
+
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextField;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Консоль IDE. Строки лежат в {@link ConsoleBuffer} с ограничением по числу строк,
+ * на экран выводятся только видимые (виртуализированный ListView), поэтому
+ * добавление не зависит от объёма уже накопленного вывода. Поиск, копирование
+ * выделенных строк и поле ввода для stdin запущенного процесса.
+ */
+public final class ConsoleView extends BorderPane {
+    static final int DEFAULT_MAX_LINES = 200_000;
+    private static final int MAX_LINE_CHARS = 10_000;
+    private static final KeyCombination COPY = new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN);
+
+    private final ConsoleBuffer buffer = new ConsoleBuffer(DEFAULT_MAX_LINES);
+    private final LineList lineList = new LineList();
+    private final ListView<Integer> listView = new ListView<>(lineList);
+    private final TextField searchField = new TextField();
+    private final CheckBox matchCaseBox = new CheckBox("Match case");
+    private final CheckBox followBox = new CheckBox("Follow");
+    private final Label infoLabel = new Label();
+    private final TextField inputField = new TextField();
+    private Consumer<String> onInput;
+
+    public ConsoleView() {
+        getStyleClass().add("console-view");
+        listView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        listView.setFixedCellSize(19);
+        listView.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null || item >= buffer.size()) {
+                    setText(null);
+                } else {
+                    String line = buffer.get(item);
+                    setText(line.length() > MAX_LINE_CHARS ? line.substring(0, MAX_LINE_CHARS) + " …" : line);
+                }
+            }
+        });
+        listView.setOnKeyPressed(e -> {
+            if (COPY.match(e)) {
+                copySelection();
+                e.consume();
+            } else if (e.getCode() == KeyCode.END) {
+                followBox.setSelected(true);
+                scrollToEnd();
+            }
+        });
+        // Прокрутка вверх - пользователь читает старый вывод, не уводим его вниз
+        listView.addEventFilter(ScrollEvent.SCROLL, e -> {
+            if (e.getDeltaY() > 0) followBox.setSelected(false);
+        });
+        MenuItem copy = new MenuItem("Copy");
+        copy.setOnAction(e -> copySelection());
+        MenuItem copyAll = new MenuItem("Copy All");
+        copyAll.setOnAction(e -> copyToClipboard(buffer.text(0, buffer.size())));
+        MenuItem clear = new MenuItem("Clear");
+        clear.setOnAction(e -> clear());
+        listView.setContextMenu(new ContextMenu(copy, copyAll, clear));
+
+        searchField.setPromptText("Search in console...");
+        searchField.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER) {
+                find(!e.isShiftDown());
+                e.consume();
+            }
+        });
+        Button nextButton = new Button("Find next");
+        nextButton.setOnAction(e -> find(true));
+        Button prevButton = new Button("Previous");
+        prevButton.setOnAction(e -> find(false));
+        followBox.setSelected(true);
+        followBox.setOnAction(e -> {
+            if (followBox.isSelected()) scrollToEnd();
+        });
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+        HBox bar = new HBox(8, searchField, nextButton, prevButton, matchCaseBox, followBox, infoLabel);
+        bar.setPadding(new Insets(2, 8, 2, 8));
+
+        inputField.setPromptText("Input for the running process (Enter to send)");
+        inputField.setOnAction(e -> {
+            String text = inputField.getText();
+            inputField.clear();
+            if (onInput != null) onInput.accept(text);
+        });
+
+        setTop(bar);
+        setCenter(listView);
+        setBottom(inputField);
+        updateInfo();
+    }
+
+    /** Обработчик строки, введённой в поле ввода. */
+    void setOnInput(Consumer<String> onInput) {
+        this.onInput = onInput;
+    }
+
+    void setFont(String fontFamily, int fontSize) {
+        listView.setStyle(String.format("-fx-font-family: '%s'; -fx-font-size: %dpx;", fontFamily, fontSize));
+        listView.setFixedCellSize(fontSize + 6);
+    }
+
+    void setMaxLines(int maxLines) {
+        int evicted = buffer.setMaxLines(maxLines);
+        if (evicted > 0) {
+            lineList.removeFirst(evicted);
+            listView.refresh();
+        }
+        updateInfo();
+    }
+
+    /** Текст может содержать несколько строк. */
+    void append(String text) {
+        appendLines(List.of(text.split("\r?\n", -1)));
+    }
+
+    /** Быстрый путь для пачек строк от ProcessService: одно изменение списка на пачку. */
+    void appendLines(List<String> lines) {
+        if (lines.isEmpty()) return;
+        int oldSize = buffer.size();
+        int evicted = 0;
+        for (String line : lines) evicted += buffer.add(line);
+        lineList.appended(oldSize, evicted, buffer.size());
+        // Те же индексы теперь указывают на другие строки - видимые ячейки надо перерисовать
+        if (evicted > 0) listView.refresh();
+        if (followBox.isSelected()) scrollToEnd();
+        updateInfo();
+    }
+
+    void clear() {
+        buffer.clear();
+        lineList.reset();
+        updateInfo();
+    }
+
+    int lineCount() {
+        return buffer.size();
+    }
+
+    private void find(boolean forward) {
+        String query = searchField.getText();
+        if (query == null || query.isEmpty()) return;
+        int selected = listView.getSelectionModel().getSelectedIndex();
+        int from = selected < 0 ? (forward ? 0 : buffer.size() - 1) : (forward ? selected + 1 : selected - 1);
+        int line = buffer.find(query, from, forward, !matchCaseBox.isSelected());
+        if (line < 0) {
+            infoLabel.setText("Not found: " + query);
+            return;
+        }
+        followBox.setSelected(false);
+        listView.getSelectionModel().clearAndSelect(line);
+        listView.scrollTo(Math.max(0, line - 3));
+        infoLabel.setText("Line " + (buffer.evicted() + line + 1));
+    }
+
+    private void copySelection() {
+        List<Integer> selected = listView.getSelectionModel().getSelectedIndices();
+        if (selected.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        for (int index : selected.stream().sorted().toList()) {
+            if (index >= buffer.size()) continue;
+            if (!first) sb.append('\n');
+            first = false;
+            sb.append(buffer.get(index));
+        }
+        copyToClipboard(sb.toString());
+    }
+
+    private static void copyToClipboard(String text) {
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text);
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    private void scrollToEnd() {
+        int count = lineList.size();
+        if (count > 0) listView.scrollTo(count - 1);
+    }
+
+    private void updateInfo() {
+        String text = buffer.size() + " lines";
+        if (buffer.evicted() > 0) text += " (" + buffer.evicted() + " oldest dropped, limit " + buffer.maxLines() + ")";
+        infoLabel.setText(text);
+    }
+
+    /**
+     * Номера строк буфера без материализации элементов: добавление в конец
+     * и вытеснение с начала публикуются одним изменением.
+     */
+    private static final class LineList extends ObservableListBase<Integer> {
+        private int size;
+
+        void appended(int oldSize, int evicted, int newSize) {
+            // Пачка больше лимита вытесняет и часть своих же строк - из старых ушло не больше oldSize
+            int removed = Math.min(evicted, oldSize);
+            size = newSize;
+            beginChange();
+            if (removed > 0) nextRemove(0, Collections.nCopies(removed, 0));
+            nextAdd(oldSize - removed, newSize);
+            endChange();
+        }
+
+        void removeFirst(int count) {
+            size -= count;
+            beginChange();
+            nextRemove(0, Collections.nCopies(count, 0));
+            endChange();
+        }
+
+        void reset() {
+            if (size == 0) return;
+            int old = size;
+            size = 0;
+            beginChange();
+            nextRemove(0, Collections.nCopies(old, 0));
+            endChange();
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
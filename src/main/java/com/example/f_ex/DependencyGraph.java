@@ -0,0 +1,192 @@
+package com.example.f_ex;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Граф зависимостей между исходниками проекта по ссылкам на имена типов.
+ * Для каждого файла хранятся пакет, объявленные типы, импорты и множество
+ * упомянутых имён с заглавной буквы (комментарии и строки отброшены).
+ * Файл D зависит от типа T из пакета P, если упоминает T и видит его:
+ * тот же пакет, импорт P.T (в т.ч. статический) или P.*.
+ */
+final class DependencyGraph {
+    private static final Pattern PACKAGE = Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
+    private static final Pattern IMPORT = Pattern.compile("\\bimport\\s+(?:static\\s+)?([\\w.]+)(\\.\\*)?\\s*;");
+    private static final Pattern DECLARATION = Pattern.compile("\\b(?:class|interface|enum|record)\\s+([A-Za-z_$][\\w$]*)");
+    private static final Pattern TYPE_NAME = Pattern.compile("\\b[A-Z][\\w$]*");
+
+    private static final class FileInfo {
+        private final String pkg;
+        private final Set<String> types;
+        private final Set<String> imports;
+        private final Set<String> wildcards;
+        private final Set<String> refs;
+
+        private FileInfo(String pkg, Set<String> types, Set<String> imports, Set<String> wildcards, Set<String> refs) {
+            this.pkg = pkg;
+            this.types = types;
+            this.imports = imports;
+            this.wildcards = wildcards;
+            this.refs = refs;
+        }
+
+        private boolean sees(String typePkg, String type) {
+            if (!refs.contains(type)) return false;
+            if (pkg.equals(typePkg)) return true;
+            if (wildcards.contains(typePkg)) return true;
+            String fqn = typePkg.isEmpty() ? type : typePkg + "." + type;
+            for (String imp : imports) {
+                if (imp.equals(fqn) || imp.startsWith(fqn + ".")) return true;
+            }
+            return false;
+        }
+    }
+
+    private final Map<Path, FileInfo> files = new HashMap<>();
+
+    /** Обновляет файл и возвращает зависящие от него файлы (по старым и новым объявлениям). */
+    synchronized Set<Path> update(Path file, String content) {
+        FileInfo old = files.get(file);
+        FileInfo now = scan(content);
+        files.put(file, now);
+        Set<Path> out = dependents(file, now);
+        if (old != null) out.addAll(dependents(file, old));
+        return out;
+    }
+
+    /** Удаляет файл и возвращает файлы, которые на него ссылались. */
+    synchronized Set<Path> remove(Path file) {
+        FileInfo old = files.remove(file);
+        return old == null ? new LinkedHashSet<>() : dependents(file, old);
+    }
+
+    synchronized void clear() {
+        files.clear();
+    }
+
+    /** Файлы, которые ссылаются на типы, объявленные в file. */
+    synchronized Set<Path> dependentsOf(Path file) {
+        FileInfo info = files.get(file);
+        return info == null ? new LinkedHashSet<>() : dependents(file, info);
+    }
+
+    /**
+     * Зависимые всех файлов сразу. Кандидаты берутся из индекса по упомянутым именам,
+     * а не перебором всех пар файлов, как в {@link #dependentsOf}.
+     */
+    synchronized Map<Path, Set<Path>> allDependents() {
+        Map<String, List<Path>> byRef = new HashMap<>();
+        for (Map.Entry<Path, FileInfo> e : files.entrySet()) {
+            for (String ref : e.getValue().refs) byRef.computeIfAbsent(ref, k -> new ArrayList<>()).add(e.getKey());
+        }
+        Map<Path, Set<Path>> out = new HashMap<>();
+        for (Map.Entry<Path, FileInfo> e : files.entrySet()) {
+            FileInfo target = e.getValue();
+            Set<Path> dependents = new LinkedHashSet<>();
+            for (String type : target.types) {
+                for (Path user : byRef.getOrDefault(type, List.of())) {
+                    if (!user.equals(e.getKey()) && files.get(user).sees(target.pkg, type)) dependents.add(user);
+                }
+            }
+            out.put(e.getKey(), dependents);
+        }
+        return out;
+    }
+
+    /** Полные имена типов верхнего уровня, объявленных в исходнике. */
+    static Set<String> topLevelTypes(String content) {
+        String code = stripCommentsAndLiterals(content);
+        Matcher pm = PACKAGE.matcher(code);
+        String prefix = pm.find() ? pm.group(1) + "." : "";
+        Set<String> out = new LinkedHashSet<>();
+        Matcher m = DECLARATION.matcher(code);
+        int depth = 0;
+        int pos = 0;
+        while (m.find()) {
+            for (; pos < m.start(); pos++) {
+                char c = code.charAt(pos);
+                if (c == '{') depth++;
+                else if (c == '}') depth--;
+            }
+            if (depth == 0) out.add(prefix + m.group(1));
+        }
+        return out;
+    }
+
+    private Set<Path> dependents(Path file, FileInfo target) {
+        Set<Path> out = new LinkedHashSet<>();
+        for (Map.Entry<Path, FileInfo> e : files.entrySet()) {
+            if (e.getKey().equals(file)) continue;
+            for (String type : target.types) {
+                if (e.getValue().sees(target.pkg, type)) {
+                    out.add(e.getKey());
+                    break;
+                }
+            }
+        }
+        return out;
+    }
+
+    private static FileInfo scan(String content) {
+        String code = stripCommentsAndLiterals(content);
+        Matcher m = PACKAGE.matcher(code);
+        String pkg = m.find() ? m.group(1) : "";
+
+        Set<String> imports = new HashSet<>();
+        Set<String> wildcards = new HashSet<>();
+        m = IMPORT.matcher(code);
+        while (m.find()) {
+            if (m.group(2) != null) wildcards.add(m.group(1));
+            else imports.add(m.group(1));
+        }
+
+        Set<String> types = new HashSet<>();
+        m = DECLARATION.matcher(code);
+        while (m.find()) types.add(m.group(1));
+
+        Set<String> refs = new HashSet<>();
+        m = TYPE_NAME.matcher(code);
+        while (m.find()) refs.add(m.group());
+        refs.removeAll(types);
+        return new FileInfo(pkg, types, imports, wildcards, refs);
+    }
+
+    // Комментарии и литералы заменяются пробелами, чтобы имена в них не считались ссылками
+    private static String stripCommentsAndLiterals(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            char next = i + 1 < n ? s.charAt(i + 1) : '\0';
+            if (c == '/' && next == '/') {
+                while (i < n && s.charAt(i) != '\n') i++;
+            } else if (c == '/' && next == '*') {
+                int end = s.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                out.append(' ');
+            } else if (c == '"' || c == '\'') {
+                i++;
+                while (i < n && s.charAt(i) != c && s.charAt(i) != '\n') {
+                    if (s.charAt(i) == '\\') i++;
+                    i++;
+                }
+                i++;
+                out.append(' ');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.f_ex;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * LRU-кэш результатов полной проверки по ключу (файл, SHA-256 текста, отпечаток модели
+ * проекта). Откат правок, повторное открытие вкладки или обновление диагностики
+ * с тем же текстом берут замечания отсюда, не запуская компилятор.
+ * <p>
+ * Записи устаревают, когда на диске меняется любой другой исходник проекта:
+ * каждая запись помнит номер «эпохи» изменений, при которой была получена.
+ * При пакетной проверке в хэш текста входят и тексты остальных буферов пакета.
+ */
+final class DiagnosticsCache {
+    private static final int MAX_ENTRIES = 256;
+    private static final int MAX_PROBLEMS_PER_ENTRY = 1000;
+
+    static final class Key {
+        private final Path file;
+        private final byte[] contentHash;
+        private final String modelFingerprint;
+        private final int hash;
+
+        private Key(Path file, byte[] contentHash, String modelFingerprint) {
+            this.file = file;
+            this.contentHash = contentHash;
+            this.modelFingerprint = modelFingerprint;
+            this.hash = Objects.hash(file, Arrays.hashCode(contentHash), modelFingerprint);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return file.equals(k.file) && Arrays.equals(contentHash, k.contentHash) && modelFingerprint.equals(k.modelFingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Problem> problems;
+        private final long epoch;
+
+        private Entry(List<Problem> problems, long epoch) {
+            this.problems = problems;
+            this.epoch = epoch;
+        }
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Эпоха последнего изменения и эпоха последнего изменения другого файла -
+    // этого достаточно, чтобы не сбрасывать запись из-за сохранения самого проверяемого файла
+    private long epoch;
+    private Path lastChanged;
+    private long lastChangedEpoch;
+    private long otherChangedEpoch;
+
+    private long hits;
+    private long misses;
+
+    Key key(Path file, String content, ProjectModelResolver.ProjectModel model) {
+        byte[] hash = sha256(content == null ? "" : content);
+        return new Key(file.normalize().toAbsolutePath(), hash, fingerprint(model));
+    }
+
+    /** Ключи для пакета буферов: результат по файлу зависит и от несохранённых соседей. */
+    Map<Path, Key> keys(Map<Path, String> buffers, ProjectModelResolver.ProjectModel model) {
+        String fp = fingerprint(model);
+        Map<Path, byte[]> hashes = new TreeMap<>();
+        Map<Path, Path> normalized = new LinkedHashMap<>();
+        for (Map.Entry<Path, String> e : buffers.entrySet()) {
+            Path p = e.getKey().normalize().toAbsolutePath();
+            normalized.put(e.getKey(), p);
+            hashes.put(p, sha256(e.getValue() == null ? "" : e.getValue()));
+        }
+        Map<Path, Key> out = new LinkedHashMap<>();
+        for (Map.Entry<Path, Path> e : normalized.entrySet()) {
+            Path file = e.getValue();
+            byte[] hash = hashes.get(file);
+            if (hashes.size() > 1) {
+                MessageDigest md = sha256();
+                md.update(hash);
+                for (Map.Entry<Path, byte[]> other : hashes.entrySet()) {
+                    if (other.getKey().equals(file)) continue;
+                    md.update(other.getKey().toString().getBytes(StandardCharsets.UTF_8));
+                    md.update(other.getValue());
+                }
+                hash = md.digest();
+            }
+            out.put(e.getKey(), new Key(file, hash, fp));
+        }
+        return out;
+    }
+
+    synchronized List<Problem> get(Key key) {
+        Entry e = entries.get(key);
+        if (e == null || changedElsewhereSince(key.file, e.epoch)) {
+            if (e != null) entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.problems;
+    }
+
+    /** epoch - значение {@link #epoch()} до начала проверки. */
+    synchronized void put(Key key, List<Problem> problems, long epoch) {
+        if (problems.size() > MAX_PROBLEMS_PER_ENTRY) return;
+        // За время проверки изменился другой исходник - результат мог устареть
+        if (changedElsewhereSince(key.file, epoch)) return;
+        entries.put(key, new Entry(List.copyOf(problems), epoch));
+    }
+
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /** Исходник проекта изменился на диске (создан, удалён, записан). */
+    synchronized void sourceChanged(Path file) {
+        Path p = file.normalize().toAbsolutePath();
+        epoch++;
+        if (!p.equals(lastChanged)) {
+            otherChangedEpoch = lastChangedEpoch;
+            lastChanged = p;
+        }
+        lastChangedEpoch = epoch;
+    }
+
+    /** Сбросить все записи, например при смене опций компилятора. */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized String stats() {
+        return "diagnostics cache: " + entries.size() + " entries, " + hits + " hits, " + misses + " misses";
+    }
+
+    private boolean changedElsewhereSince(Path file, long since) {
+        long latestOther = file.equals(lastChanged) ? otherChangedEpoch : lastChangedEpoch;
+        return latestOther > since;
+    }
+
+    private static String fingerprint(ProjectModelResolver.ProjectModel model) {
+        return model == null ? "" : model.fingerprint();
+    }
+
+    private static byte[] sha256(String s) {
+        return sha256().digest(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.f_ex;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Диагностика Java-файла компилятором внутри процесса IDE (javax.tools).
+ * Редактируемый буфер подаётся из памяти, сгенерированные классы выбрасываются,
+ * замечания приходят структурированными через DiagnosticListener.
+ * Файловый менеджер с classpath живёт в {@link CompilerSession} между проверками.
+ * Процессоры аннотаций по умолчанию выключены, см. {@link AnnotationProcessing}.
+ */
+final class DiagnosticsEngine {
+    private static final List<String> OPTIONS = List.of("-Xlint:all", "-proc:none", "-implicit:none", "-encoding", "UTF-8");
+
+    private static final List<String> PARSE_OPTIONS = List.of("-proc:none");
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final CompilerSession session;
+    private final AnnotationProcessing processing;
+    private volatile boolean annotationProcessing;
+    private final Object parseLock = new Object();
+    private StandardJavaFileManager parseFileManager;
+
+    DiagnosticsEngine(Consumer<String> log) {
+        this.session = compiler != null ? new CompilerSession(compiler, log) : null;
+        this.processing = compiler != null ? new AnnotationProcessing(compiler, log) : null;
+    }
+
+    void setAnnotationProcessing(boolean enabled) {
+        annotationProcessing = enabled;
+    }
+
+    /** Исходник проекта изменился на диске: сгенерированные процессорами исходники могли устареть. */
+    void sourceChanged(Path file) {
+        if (processing != null) processing.sourcesChanged();
+    }
+
+    /** false, если IDE запущена не на JDK (например, урезанный образ без jdk.compiler). */
+    boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * @param cancelled проверяется на границах фаз javac; при true компиляция
+     *                  обрывается с CancellationException
+     */
+    List<Problem> check(Path file, String content, ProjectModelResolver.ProjectModel model, BooleanSupplier cancelled) throws IOException {
+        return check(Map.of(file, content), model, cancelled).getOrDefault(file, List.of());
+    }
+
+    /**
+     * Пакетная проверка: все буферы компилируются одной задачей javac (общий разбор
+     * sourcepath и загрузка символов), замечания раскладываются по файлам.
+     * Буферы видят друг друга в текущем, а не сохранённом виде.
+     */
+    Map<Path, List<Problem>> check(Map<Path, String> buffers, ProjectModelResolver.ProjectModel model, BooleanSupplier cancelled) throws IOException {
+        boolean apt = annotationProcessing && model != null;
+        // Модель с каталогом сгенерированных исходников - ключ файлового менеджера, поэтому до session.run
+        ProjectModelResolver.ProjectModel effective = apt ? processing.withGeneratedSources(model) : model;
+        return session.run(effective, standard -> {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+            List<String> options = apt ? optionsWith(processing.prepare(model)) : OPTIONS;
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            Map<JavaFileObject, Path> units = new IdentityHashMap<>();
+            for (Map.Entry<Path, String> e : buffers.entrySet()) {
+                units.put(new SourceBuffer(e.getKey(), e.getValue()), e.getKey());
+            }
+            JavaCompiler.CompilationTask task = compiler.getTask(null, new DiscardingFileManager(standard), diagnostics,
+                    options, null, units.keySet());
+            if (task instanceof JavacTask) {
+                ((JavacTask) task).addTaskListener(new CancelOnEvent(cancelled));
+            }
+            try {
+                task.call();
+            } catch (RuntimeException e) {
+                // javac оборачивает исключения слушателя
+                if (e.getCause() instanceof CancellationException) throw (CancellationException) e.getCause();
+                throw e;
+            }
+            Map<Path, List<Problem>> result = new LinkedHashMap<>();
+            for (Path file : buffers.keySet()) result.put(file, new ArrayList<>());
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                // Замечания по файлам из sourcepath, которых нет среди буферов, не нужны
+                Path file = units.get(d.getSource());
+                if (file != null) result.get(file).add(toProblem(file, d));
+            }
+            return result;
+        });
+    }
+
+    /** Быстрый уровень: только синтаксический разбор буфера, без classpath и атрибуции. */
+    List<Problem> parse(Path file, String content) throws IOException {
+        synchronized (parseLock) {
+            if (parseFileManager == null) {
+                parseFileManager = compiler.getStandardFileManager(null, Locale.ENGLISH, StandardCharsets.UTF_8);
+            }
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            JavaFileObject buffer = new SourceBuffer(file, content);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, parseFileManager, diagnostics,
+                    PARSE_OPTIONS, null, List.of(buffer));
+            if (!(task instanceof JavacTask)) return List.of();
+            ((JavacTask) task).parse();
+            return toProblems(file, buffer, diagnostics.getDiagnostics());
+        }
+    }
+
+    /**
+     * Модель проекта сменилась: файловые менеджеры прежнего classpath закрываются, JAR
+     * перечитываются, кэш процессоров аннотаций прежних моделей удаляется.
+     */
+    void projectModelChanged(ProjectModelResolver.ProjectModel model) {
+        if (session != null) session.invalidate();
+        if (processing != null) processing.retain(model);
+    }
+
+    String sessionStats() {
+        return session != null ? session.stats() : "compiler session: unavailable";
+    }
+
+    // Процессоры, меняющие AST, запускаются в самой проверке; генерирующие уже отработали
+    private static List<String> optionsWith(List<String> processors) {
+        if (processors.isEmpty()) return OPTIONS;
+        List<String> options = new ArrayList<>(OPTIONS);
+        options.remove("-proc:none");
+        options.add("-processor");
+        options.add(String.join(",", processors));
+        return options;
+    }
+
+    private static List<Problem> toProblems(Path file, JavaFileObject buffer, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        List<Problem> result = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getSource() == buffer) result.add(toProblem(file, d));
+        }
+        return result;
+    }
+
+    static Problem toProblem(Path file, Diagnostic<? extends JavaFileObject> d) {
+        long ln = d.getLineNumber();
+        String msg = d.getMessage(Locale.ENGLISH).replaceAll("\\s*\\R\\s*", " ").trim();
+        long col = d.getColumnNumber();
+        return new Problem(file, ln == Diagnostic.NOPOS ? 0 : (int) ln, col == Diagnostic.NOPOS ? 0 : (int) col,
+                (int) d.getStartPosition(), (int) d.getEndPosition(), kindOf(d.getKind()), msg);
+    }
+
+    private static final class CancelOnEvent implements TaskListener {
+        private final BooleanSupplier cancelled;
+
+        private CancelOnEvent(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public void started(TaskEvent e) {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+        }
+    }
+
+    private static String kindOf(Diagnostic.Kind kind) {
+        return switch (kind) {
+            case ERROR -> "error";
+            case WARNING, MANDATORY_WARNING -> "warning";
+            default -> "note";
+        };
+    }
+
+    // Текст из редактора вместо файла на диске
+    private static final class SourceBuffer extends SimpleJavaFileObject {
+        private final String content;
+
+        private SourceBuffer(Path file, String content) {
+            super(file.toUri(), Kind.SOURCE);
+            this.content = content == null ? "" : content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    // Вывод компилятора (.class и пр.) никуда не пишется
+    private static final class DiscardingFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        private DiscardingFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+
+        @Override
+        public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+            String pkg = packageName == null || packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/";
+            return new SimpleJavaFileObject(URI.create("mem:///" + pkg + relativeName), JavaFileObject.Kind.OTHER) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.f_ex;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import org.fxmisc.richtext.model.PlainTextChange;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Планировщик диагностики по файлам: у каждого файла свой debounce-таймер и счётчик
+ * поколений. Проверки выполняются на ограниченном пуле; новая правка делает
+ * предыдущую проверку устаревшей и прерывает её, а результат публикуется, только
+ * если его поколение всё ещё последнее для этого файла.
+ * <p>
+ * Два уровня: быстрый разбор только синтаксиса (свой поток, короткая задержка)
+ * и полная проверка типов. Пока полная проверка не пришла, к синтаксическим ошибкам
+ * добавляются замечания последней полной проверки синтаксически корректного текста;
+ * их позиции сдвигаются вслед за правками, иначе указывали бы в прежний текст.
+ * <p>
+ * Полные проверки, чьи таймеры сработали в одном кадре FX, объединяются в одну
+ * пакетную задачу вместе с несохранёнными буферами других открытых файлов.
+ */
+final class DiagnosticsScheduler {
+    interface Checker {
+        List<Problem> check(Path file, String content, BooleanSupplier cancelled) throws Exception;
+    }
+
+    interface BatchChecker {
+        Map<Path, List<Problem>> check(Map<Path, String> buffers, BooleanSupplier cancelled) throws Exception;
+    }
+
+    private static final Duration PARSE_DEBOUNCE = Duration.millis(100);
+    private static final Duration DEBOUNCE = Duration.millis(800);
+
+    private final class FileState {
+        private final Path file;
+        private final AtomicLong generation = new AtomicLong();
+        private final PauseTransition parseTimer = new PauseTransition(PARSE_DEBOUNCE);
+        private final PauseTransition timer = new PauseTransition(DEBOUNCE);
+        // Замечания последней полной проверки текста без синтаксических ошибок, в позициях текущего текста
+        private List<Problem> semantic = List.of();
+
+        private FileState(Path file) {
+            this.file = file;
+        }
+    }
+
+    private final Checker parser;
+    private final BatchChecker checker;
+    private final Supplier<Map<Path, String>> companions;
+    private final BiConsumer<Path, List<Problem>> publisher;
+    private final Map<Path, FileState> files = new HashMap<>(); // только из потока FX
+    // Файлы, чья полная проверка ждёт отправки пакетом, и поколение на момент срабатывания таймера
+    private final Map<Path, Long> ready = new LinkedHashMap<>();
+    private final Map<Path, String> readyContent = new HashMap<>();
+    private boolean batchPosted;
+    private final ThreadPoolExecutor parsePool;
+    private final ThreadPoolExecutor pool;
+
+    /** companions - текущие тексты несохранённых открытых исходников (вызывается в потоке FX). */
+    DiagnosticsScheduler(Checker parser, BatchChecker checker, Supplier<Map<Path, String>> companions,
+                         BiConsumer<Path, List<Problem>> publisher) {
+        this.parser = parser;
+        this.checker = checker;
+        this.companions = companions;
+        this.publisher = publisher;
+        int workers = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "diagnostics-worker-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.pool.allowCoreThreadTimeOut(true);
+        this.parsePool = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "diagnostics-parse");
+            t.setDaemon(true);
+            return t;
+        });
+        this.parsePool.allowCoreThreadTimeOut(true);
+    }
+
+    /** Вызывать из потока FX. Текст читается, только когда истечёт задержка. */
+    void schedule(Path file, Supplier<String> content) {
+        FileState state = files.computeIfAbsent(file, FileState::new);
+        long gen = state.generation.incrementAndGet();
+        state.parseTimer.setOnFinished(e -> submitParse(state, gen, content.get()));
+        state.parseTimer.playFromStart();
+        state.timer.setOnFinished(e -> enqueue(state, gen, content.get()));
+        state.timer.playFromStart();
+    }
+
+    /**
+     * Правка буфера: позиции запомненных семантических замечаний переносятся в новый текст.
+     * lines - таблица строк уже после правки. Вызывать из потока FX до {@link #schedule}.
+     */
+    void edited(Path file, PlainTextChange change, LineIndex lines) {
+        FileState state = files.get(file);
+        if (state == null || state.semantic.isEmpty()) return;
+        state.semantic = rebase(state.semantic, change, lines);
+    }
+
+    /** Файл закрыт: отменяем ожидающие и идущие проверки. */
+    void forget(Path file) {
+        FileState state = files.remove(file);
+        if (state == null) return;
+        state.generation.incrementAndGet();
+        state.parseTimer.stop();
+        state.timer.stop();
+        ready.remove(file);
+        readyContent.remove(file);
+    }
+
+    private void submitParse(FileState state, long gen, String content) {
+        if (state.generation.get() != gen) return;
+        BooleanSupplier cancelled = () -> state.generation.get() != gen;
+        parsePool.execute(() -> {
+            if (cancelled.getAsBoolean()) return;
+            List<Problem> syntax = run(parser, state.file, content, cancelled);
+            if (syntax == null) return;
+            publishIfCurrent(state, gen, () -> merge(syntax, state.semantic));
+        });
+    }
+
+    private void enqueue(FileState state, long gen, String content) {
+        if (state.generation.get() != gen) return;
+        ready.put(state.file, gen);
+        readyContent.put(state.file, content);
+        if (batchPosted) return;
+        batchPosted = true;
+        // Таймеры, сработавшие в этом же кадре, успеют попасть в пакет
+        Platform.runLater(this::submitBatch);
+    }
+
+    private void submitBatch() {
+        batchPosted = false;
+        Map<FileState, Long> targets = new LinkedHashMap<>();
+        Map<Path, String> buffers = new LinkedHashMap<>();
+        for (Map.Entry<Path, Long> e : ready.entrySet()) {
+            FileState state = files.get(e.getKey());
+            if (state == null || state.generation.get() != e.getValue()) continue;
+            targets.put(state, e.getValue());
+            buffers.put(state.file, readyContent.get(state.file));
+        }
+        ready.clear();
+        readyContent.clear();
+        if (targets.isEmpty()) return;
+        for (Map.Entry<Path, String> e : companions.get().entrySet()) {
+            buffers.putIfAbsent(e.getKey(), e.getValue());
+        }
+        // Пакет устарел, только когда устарели все его файлы
+        BooleanSupplier cancelled = () -> {
+            for (Map.Entry<FileState, Long> t : targets.entrySet()) {
+                if (t.getKey().generation.get() == t.getValue()) return false;
+            }
+            return true;
+        };
+        pool.execute(() -> {
+            if (cancelled.getAsBoolean()) return;
+            // Разбор дешёвый; нужен, чтобы понять, пригоден ли результат как семантический,
+            // и чтобы не брать в пакет тексты с синтаксическими ошибками: на них javac
+            // останавливается после разбора для всех файлов сразу
+            Map<Path, List<Problem>> syntax = new HashMap<>();
+            Map<Path, String> checkable = new LinkedHashMap<>();
+            for (Map.Entry<Path, String> e : buffers.entrySet()) {
+                List<Problem> errors = run(parser, e.getKey(), e.getValue(), () -> false);
+                if (errors == null) errors = List.of();
+                syntax.put(e.getKey(), errors);
+                if (errors.isEmpty()) checkable.put(e.getKey(), e.getValue());
+            }
+            Map<Path, List<Problem>> full = Map.of();
+            boolean anyTarget = false;
+            for (FileState state : targets.keySet()) anyTarget |= checkable.containsKey(state.file);
+            if (anyTarget) {
+                try {
+                    full = checker.check(checkable, cancelled);
+                } catch (CancellationException e) {
+                    return;
+                } catch (Exception e) {
+                    full = Map.of();
+                }
+                if (cancelled.getAsBoolean()) return;
+            }
+            for (Map.Entry<FileState, Long> t : targets.entrySet()) {
+                FileState state = t.getKey();
+                List<Problem> errors = syntax.get(state.file);
+                List<Problem> problems = full.getOrDefault(state.file, List.of());
+                publishIfCurrent(state, t.getValue(), () -> {
+                    // При синтаксических ошибках javac дальше разбора не идёт - семантику не трогаем
+                    if (!errors.isEmpty()) return merge(errors, state.semantic);
+                    state.semantic = problems;
+                    return problems;
+                });
+            }
+        });
+    }
+
+    // null - проверка отменена или устарела
+    private static List<Problem> run(Checker c, Path file, String content, BooleanSupplier cancelled) {
+        List<Problem> problems;
+        try {
+            problems = c.check(file, content, cancelled);
+        } catch (CancellationException e) {
+            return null;
+        } catch (Exception e) {
+            problems = List.of();
+        }
+        return cancelled.getAsBoolean() ? null : problems;
+    }
+
+    private void publishIfCurrent(FileState state, long gen, Supplier<List<Problem>> result) {
+        Platform.runLater(() -> {
+            // Пока результат шёл в поток FX, могла начаться новая проверка
+            if (state.generation.get() == gen && files.get(state.file) == state) {
+                publisher.accept(state.file, result.get());
+            }
+        });
+    }
+
+    // Та же арифметика, что у ProblemDecorations.shift; строка и колонка пересчитываются по смещению
+    private static List<Problem> rebase(List<Problem> problems, PlainTextChange change, LineIndex lines) {
+        int pos = change.getPosition();
+        String removed = change.getRemoved();
+        String inserted = change.getInserted();
+        int removedEnd = pos + removed.length();
+        int delta = inserted.length() - removed.length();
+        // Номера строк (с 0): до pos текст не менялся, поэтому строка правки та же
+        int changeLine = lines.lineOf(pos);
+        int removedLines = newlines(removed);
+        int lineDelta = newlines(inserted) - removedLines;
+        List<Problem> out = new ArrayList<>(problems.size());
+        for (Problem p : problems) {
+            if (p.start < 0) {
+                // Позиция известна только строкой
+                int line = p.line - 1;
+                if (line > changeLine + removedLines) line += lineDelta;
+                else if (line > changeLine) line = changeLine;
+                out.add(new Problem(p.file, line + 1, p.column, p.start, p.end, p.kind, p.message));
+                continue;
+            }
+            int start = p.start < pos ? p.start : p.start >= removedEnd ? p.start + delta : pos + inserted.length();
+            // Пустой или неизвестный конец у javac бывает и у живого замечания ("';' expected"), он остаётся точкой
+            if (p.end <= p.start) {
+                out.add(moved(p, start, start, lines));
+                continue;
+            }
+            int end = p.end <= pos ? p.end : p.end >= removedEnd ? p.end + delta : pos;
+            // Код замечания удалён целиком
+            if (end > start) out.add(moved(p, start, end, lines));
+        }
+        return out;
+    }
+
+    private static Problem moved(Problem p, int start, int end, LineIndex lines) {
+        int line = lines.lineOf(start);
+        return new Problem(p.file, line + 1, start - lines.lineStart(line) + 1, start, end, p.kind, p.message);
+    }
+
+    private static int newlines(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') n++;
+        }
+        return n;
+    }
+
+    private static List<Problem> merge(List<Problem> syntax, List<Problem> semantic) {
+        if (syntax.isEmpty()) return semantic;
+        if (semantic.isEmpty()) return syntax;
+        List<Problem> merged = new ArrayList<>(syntax.size() + semantic.size());
+        merged.addAll(syntax);
+        merged.addAll(semantic);
+        return merged;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.f_ex;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.reactfx.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Шина изменений документа: раздаёт подписчикам дельты plainTextChanges()
+ * (позиция, удалённый и вставленный текст) вместо полного текста на каждое нажатие.
+ * Таблица строк документа обновляется до оповещения подписчиков.
+ */
+final class DocumentChangeBus {
+    interface Listener {
+        void onChange(PlainTextChange change);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Subscription source;
+    private final LineIndex lines;
+
+    DocumentChangeBus(CodeArea area) {
+        this.lines = LineIndex.of(area.getText());
+        this.source = area.plainTextChanges().subscribe(this::publish);
+    }
+
+    Subscription subscribe(Listener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    LineIndex lines() {
+        return lines;
+    }
+
+    void close() {
+        source.unsubscribe();
+        listeners.clear();
+    }
+
+    private void publish(PlainTextChange change) {
+        if (change == null || change.isIdentity()) return;
+        lines.applyChange(change.getPosition(), change.getRemoved().length(), change.getInserted());
+        for (Listener l : listeners) {
+            l.onChange(change);
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.example.f_ex;
 
 import javafx.application.Platform;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -10,13 +8,25 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
+/**
+ * Сборка и упаковка через jpackage. Работает в отдельном потоке: сообщения идут
+ * в консоль через {@link ProcessService} в одной очереди с выводом сборки.
+ */
 final class ExePackager {
     private final Consumer<String> log;
     private final Consumer<String> statusUpdate;
+    private final GradleConnections gradle;
+    private final ProcessService processes;
 
     ExePackager(Consumer<String> log, Consumer<String> statusUpdate) {
-        this.log = log;
-        this.statusUpdate = statusUpdate;
+        this(log, statusUpdate, null, null);
+    }
+
+    ExePackager(Consumer<String> log, Consumer<String> statusUpdate, GradleConnections gradle, ProcessService processes) {
+        this.processes = processes != null ? processes : new ProcessService(lines -> lines.forEach(log));
+        this.log = this.processes.console();
+        this.statusUpdate = text -> Platform.runLater(() -> statusUpdate.accept(text));
+        this.gradle = gradle;
     }
 
     void packageAsExe(Path projectRoot, ProjectDetector.ProjectType type) {
@@ -25,13 +35,17 @@ final class ExePackager {
             return;
         }
 
-        if (type == ProjectDetector.ProjectType.GRADLE) {
-            packageGradleAsExe(projectRoot);
-        } else if (type == ProjectDetector.ProjectType.MAVEN) {
-            packageMavenAsExe(projectRoot);
-        } else {
-            log.accept("EXE packaging supported only for Gradle/Maven projects");
-        }
+        Thread t = new Thread(() -> {
+            if (type == ProjectDetector.ProjectType.GRADLE) {
+                packageGradleAsExe(projectRoot);
+            } else if (type == ProjectDetector.ProjectType.MAVEN) {
+                packageMavenAsExe(projectRoot);
+            } else {
+                log.accept("EXE packaging supported only for Gradle/Maven projects");
+            }
+        }, "exe-packager");
+        t.setDaemon(true);
+        t.start();
     }
 
     private void packageGradleAsExe(Path projectRoot) {
@@ -103,6 +117,9 @@ final class ExePackager {
     }
 
     private boolean buildFatJar(Path projectRoot) {
+        Boolean viaToolingApi = runGradleTask(projectRoot, "shadowJar", "Fat JAR build");
+        if (viaToolingApi != null) return viaToolingApi;
+
         boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
         List<String> cmd = new ArrayList<>();
         Path gradlewBat = projectRoot.resolve("gradlew.bat");
@@ -119,31 +136,32 @@ final class ExePackager {
         statusUpdate.accept("Building fat JAR...");
 
         try {
-            ProcessBuilder pb = new ProcessBuilder(cmd);
-            pb.directory(projectRoot.toFile());
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
-
-            try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = r.readLine()) != null) {
-                    String l = line;
-                    Platform.runLater(() -> log.accept(l));
-                }
-            }
-
-            int code = p.waitFor();
-            Platform.runLater(() -> {
-                log.accept("Fat JAR build finished with exit code: " + code);
-                statusUpdate.accept(code == 0 ? "Fat JAR build completed" : "Fat JAR build failed");
-            });
+            int code = processes.start("gradle-shadowJar", cmd, projectRoot, null).waitFor();
+            log.accept("Fat JAR build finished with exit code: " + code);
+            statusUpdate.accept(code == 0 ? "Fat JAR build completed" : "Fat JAR build failed");
             return code == 0;
         } catch (Exception e) {
-            Platform.runLater(() -> log.accept("Fat JAR build failed: " + e.getMessage()));
+            log.accept("Fat JAR build failed: " + e.getMessage());
             return false;
         }
     }
 
+    /** Задача через Tooling API; null - подключиться не удалось, нужен gradlew. */
+    private Boolean runGradleTask(Path projectRoot, String task, String what) {
+        if (gradle == null || !GradleConnections.hasWrapper(projectRoot)) return null;
+        log.accept("$ gradle " + task + " (Tooling API)");
+        statusUpdate.accept(what + "...");
+        try {
+            boolean ok = gradle.run(projectRoot, List.of(task), log, taskPath -> statusUpdate.accept(what + ": " + taskPath));
+            log.accept(what + (ok ? " succeeded" : " failed"));
+            statusUpdate.accept(ok ? what + " completed" : what + " failed");
+            return ok;
+        } catch (GradleConnections.UnavailableException e) {
+            log.accept(e.getMessage() + ", falling back to gradlew");
+            return null;
+        }
+    }
+
     private Path findFatJar(Path projectRoot) {
         Path libs = projectRoot.resolve("build").resolve("libs");
         if (Files.isDirectory(libs)) {
@@ -192,6 +210,8 @@ final class ExePackager {
         List<String> cmd = new ArrayList<>();
 
         if (type == ProjectDetector.ProjectType.GRADLE) {
+            Boolean viaToolingApi = runGradleTask(projectRoot, "build", "Build");
+            if (viaToolingApi != null) return viaToolingApi;
             Path gradlewBat = projectRoot.resolve("gradlew.bat");
             Path gradlew = projectRoot.resolve("gradlew");
             if (isWindows && Files.exists(gradlewBat)) {
@@ -223,27 +243,12 @@ final class ExePackager {
         statusUpdate.accept("Building project...");
 
         try {
-            ProcessBuilder pb = new ProcessBuilder(cmd);
-            pb.directory(projectRoot.toFile());
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
-
-            try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = r.readLine()) != null) {
-                    String l = line;
-                    Platform.runLater(() -> log.accept(l));
-                }
-            }
-
-            int code = p.waitFor();
-            Platform.runLater(() -> {
-                log.accept("Build finished with exit code: " + code);
-                statusUpdate.accept(code == 0 ? "Build completed" : "Build failed");
-            });
+            int code = processes.start("project-build", cmd, projectRoot, null).waitFor();
+            log.accept("Build finished with exit code: " + code);
+            statusUpdate.accept(code == 0 ? "Build completed" : "Build failed");
             return code == 0;
         } catch (Exception e) {
-            Platform.runLater(() -> log.accept("Build failed: " + e.getMessage()));
+            log.accept("Build failed: " + e.getMessage());
             return false;
         }
     }
@@ -308,48 +313,7 @@ final class ExePackager {
             "--win-console"
         ));
 
-        log.accept("$ " + String.join(" ", cmd));
-        statusUpdate.accept("Running jpackage...");
-
-        Thread t = new Thread(() -> {
-            try {
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.directory(runtimeImage.getParent().toFile());
-                pb.redirectErrorStream(true);
-                Process p = pb.start();
-
-                try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = r.readLine()) != null) {
-                        String l = line;
-                        Platform.runLater(() -> log.accept(l));
-                    }
-                }
-
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    if (code == 0) {
-                        Path exe = outputDir.resolve(appName).resolve(appName + ".exe");
-                        if (Files.exists(exe)) {
-                            log.accept("EXE created: " + exe);
-                        } else {
-                            log.accept("Package created in: " + outputDir.resolve(appName));
-                        }
-                        statusUpdate.accept("EXE packaging completed");
-                    } else {
-                        log.accept("jpackage failed with exit code: " + code);
-                        statusUpdate.accept("EXE packaging failed");
-                    }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    log.accept("jpackage failed: " + e.getMessage());
-                    statusUpdate.accept("EXE packaging failed");
-                });
-            }
-        }, "jpackage-runner");
-        t.setDaemon(true);
-        t.start();
+        runJpackageCommand(cmd, runtimeImage.getParent(), outputDir, appName);
     }
 
     private void runJpackageWithFatJar(Path jarFile, String appName, Path outputDir, String mainClass) {
@@ -384,48 +348,7 @@ final class ExePackager {
             "--java-options", "--add-opens=java.base/java.util=ALL-UNNAMED"
         ));
 
-        log.accept("$ " + String.join(" ", cmd));
-        statusUpdate.accept("Running jpackage...");
-
-        Thread t = new Thread(() -> {
-            try {
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.directory(jarFile.getParent().toFile());
-                pb.redirectErrorStream(true);
-                Process p = pb.start();
-
-                try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = r.readLine()) != null) {
-                        String l = line;
-                        Platform.runLater(() -> log.accept(l));
-                    }
-                }
-
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    if (code == 0) {
-                        Path exe = outputDir.resolve(appName).resolve(appName + ".exe");
-                        if (Files.exists(exe)) {
-                            log.accept("EXE created: " + exe);
-                        } else {
-                            log.accept("Package created in: " + outputDir.resolve(appName));
-                        }
-                        statusUpdate.accept("EXE packaging completed");
-                    } else {
-                        log.accept("jpackage failed with exit code: " + code);
-                        statusUpdate.accept("EXE packaging failed");
-                    }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    log.accept("jpackage failed: " + e.getMessage());
-                    statusUpdate.accept("EXE packaging failed");
-                });
-            }
-        }, "jpackage-runner");
-        t.setDaemon(true);
-        t.start();
+        runJpackageCommand(cmd, jarFile.getParent(), outputDir, appName);
     }
 
     private void runJpackageWithModules(Path jarFile, String appName, Path outputDir, String mainClass) {
@@ -459,48 +382,7 @@ final class ExePackager {
             "--win-console"
         ));
 
-        log.accept("$ " + String.join(" ", cmd));
-        statusUpdate.accept("Running jpackage...");
-
-        Thread t = new Thread(() -> {
-            try {
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.directory(jarFile.getParent().toFile());
-                pb.redirectErrorStream(true);
-                Process p = pb.start();
-
-                try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = r.readLine()) != null) {
-                        String l = line;
-                        Platform.runLater(() -> log.accept(l));
-                    }
-                }
-
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    if (code == 0) {
-                        Path exe = outputDir.resolve(appName).resolve(appName + ".exe");
-                        if (Files.exists(exe)) {
-                            log.accept("EXE created: " + exe);
-                        } else {
-                            log.accept("Package created in: " + outputDir.resolve(appName));
-                        }
-                        statusUpdate.accept("EXE packaging completed");
-                    } else {
-                        log.accept("jpackage failed with exit code: " + code);
-                        statusUpdate.accept("EXE packaging failed");
-                    }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    log.accept("jpackage failed: " + e.getMessage());
-                    statusUpdate.accept("EXE packaging failed");
-                });
-            }
-        }, "jpackage-runner");
-        t.setDaemon(true);
-        t.start();
+        runJpackageCommand(cmd, jarFile.getParent(), outputDir, appName);
     }
 
     private void runJpackage(Path jarFile, String appName, Path outputDir, String mainClass) {
@@ -533,47 +415,30 @@ final class ExePackager {
             "--win-console"
         ));
 
+        runJpackageCommand(cmd, jarFile.getParent(), outputDir, appName);
+    }
+
+    private void runJpackageCommand(List<String> cmd, Path directory, Path outputDir, String appName) {
         log.accept("$ " + String.join(" ", cmd));
         statusUpdate.accept("Running jpackage...");
 
-        Thread t = new Thread(() -> {
-            try {
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.directory(jarFile.getParent().toFile());
-                pb.redirectErrorStream(true);
-                Process p = pb.start();
-
-                try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = r.readLine()) != null) {
-                        String l = line;
-                        Platform.runLater(() -> log.accept(l));
-                    }
+        try {
+            int code = processes.start("jpackage", cmd, directory, null).waitFor();
+            if (code == 0) {
+                Path exe = outputDir.resolve(appName).resolve(appName + ".exe");
+                if (Files.exists(exe)) {
+                    log.accept("EXE created: " + exe);
+                } else {
+                    log.accept("Package created in: " + outputDir.resolve(appName));
                 }
-
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    if (code == 0) {
-                        Path exe = outputDir.resolve(appName).resolve(appName + ".exe");
-                        if (Files.exists(exe)) {
-                            log.accept("EXE created: " + exe);
-                        } else {
-                            log.accept("Package created in: " + outputDir.resolve(appName));
-                        }
-                        statusUpdate.accept("EXE packaging completed");
-                    } else {
-                        log.accept("jpackage failed with exit code: " + code);
-                        statusUpdate.accept("EXE packaging failed");
-                    }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    log.accept("jpackage failed: " + e.getMessage());
-                    statusUpdate.accept("EXE packaging failed");
-                });
+                statusUpdate.accept("EXE packaging completed");
+            } else {
+                log.accept("jpackage failed with exit code: " + code);
+                statusUpdate.accept("EXE packaging failed");
             }
-        }, "jpackage-runner");
-        t.setDaemon(true);
-        t.start();
+        } catch (Exception e) {
+            log.accept("jpackage failed: " + e.getMessage());
+            statusUpdate.accept("EXE packaging failed");
+        }
     }
 }
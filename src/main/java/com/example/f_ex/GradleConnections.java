@@ -0,0 +1,236 @@
+package com.example.f_ex;
+
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.model.UnsupportedMethodException;
+import org.gradle.tooling.model.eclipse.ClasspathAttribute;
+import org.gradle.tooling.model.eclipse.EclipseExternalDependency;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+import org.gradle.tooling.model.eclipse.EclipseProjectDependency;
+import org.gradle.tooling.model.eclipse.EclipseSourceDirectory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Постоянные подключения Gradle Tooling API по корню проекта. Демон Gradle
+ * согласовывается один раз на проект: модель берётся из {@link EclipseProject}
+ * без разбора вывода, задачи запускаются через {@link BuildLauncher} с событиями
+ * прогресса и отменой. Если подключиться не удалось (старый Gradle, сломанный
+ * wrapper), бросается {@link UnavailableException} - вызывающий запускает gradlew.
+ * Методы блокирующие, вызывать из фоновых потоков.
+ */
+final class GradleConnections {
+    /** Tooling API не работает с этим проектом. */
+    static final class UnavailableException extends Exception {
+        UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final Map<Path, ProjectConnection> connections = new ConcurrentHashMap<>();
+    private final Set<CancellationTokenSource> running = ConcurrentHashMap.newKeySet();
+
+    /** Как и gradlew-путь, используем только проекты с wrapper: без него API скачал бы свою версию Gradle. */
+    static boolean hasWrapper(Path root) {
+        return Files.exists(root.resolve("gradlew")) || Files.exists(root.resolve("gradlew.bat"));
+    }
+
+    /**
+     * Модули сборки: по одному на проект с исходниками, main и test раздельно.
+     *
+     * @throws GradleConnectionException если сборка сконфигурирована с ошибкой
+     */
+    List<ProjectModelResolver.Module> modules(Path root) throws UnavailableException {
+        ProjectConnection connection = connect(root);
+        EclipseProject project;
+        try {
+            project = connection.model(EclipseProject.class).get();
+        } catch (BuildException e) {
+            throw e;
+        } catch (GradleConnectionException | IllegalStateException e) {
+            drop(root);
+            throw new UnavailableException("Gradle Tooling API failed: " + e.getMessage(), e);
+        }
+        List<EclipseProject> projects = new ArrayList<>();
+        flatten(project, projects);
+        // Зависимости в модели Eclipse ссылаются на имя проекта, модули называем путём Gradle
+        Map<String, String> pathByName = new HashMap<>();
+        for (EclipseProject p : projects) pathByName.put(p.getName(), gradlePath(p));
+        List<ProjectModelResolver.Module> modules = new ArrayList<>();
+        for (EclipseProject p : projects) {
+            ProjectModelResolver.Module m = toModule(p, pathByName);
+            if (!m.sourceRoots.isEmpty() || !m.testRoots.isEmpty()) modules.add(m);
+        }
+        return modules;
+    }
+
+    /**
+     * Выполняет задачи; вывод сборки построчно уходит в output, начало каждой
+     * задачи - в progress.
+     *
+     * @return true, если сборка прошла успешно
+     */
+    boolean run(Path root, List<String> tasks, Consumer<String> output, Consumer<String> progress) throws UnavailableException {
+        ProjectConnection connection = connect(root);
+        CancellationTokenSource cancel = GradleConnector.newCancellationTokenSource();
+        running.add(cancel);
+        LineOutput out = new LineOutput(output);
+        try {
+            connection.newBuild()
+                    .forTasks(tasks.toArray(new String[0]))
+                    .setStandardOutput(out)
+                    .setStandardError(out)
+                    .withCancellationToken(cancel.token())
+                    .addProgressListener(event -> {
+                        if (event instanceof TaskStartEvent) progress.accept(((TaskStartEvent) event).getDescriptor().getTaskPath());
+                    }, OperationType.TASK)
+                    .run();
+            return true;
+        } catch (BuildCancelledException e) {
+            output.accept("Build cancelled");
+            return false;
+        } catch (BuildException e) {
+            return false;
+        } catch (GradleConnectionException | IllegalStateException e) {
+            drop(root);
+            throw new UnavailableException("Gradle Tooling API failed: " + e.getMessage(), e);
+        } finally {
+            out.flushLine();
+            running.remove(cancel);
+        }
+    }
+
+    /** Отменяет все идущие сборки (например, при смене проекта). */
+    void cancelAll() {
+        for (CancellationTokenSource cancel : running) cancel.cancel();
+    }
+
+    void closeAll() {
+        cancelAll();
+        for (Path root : new ArrayList<>(connections.keySet())) drop(root);
+    }
+
+    private ProjectConnection connect(Path root) throws UnavailableException {
+        Path key = root.normalize().toAbsolutePath();
+        if (!hasWrapper(key)) throw new UnavailableException("No Gradle wrapper in " + key, null);
+        try {
+            return connections.computeIfAbsent(key, k -> GradleConnector.newConnector()
+                    .forProjectDirectory(k.toFile())
+                    .connect());
+        } catch (GradleConnectionException | IllegalArgumentException e) {
+            throw new UnavailableException("Cannot connect to Gradle: " + e.getMessage(), e);
+        }
+    }
+
+    private void drop(Path root) {
+        ProjectConnection connection = connections.remove(root.normalize().toAbsolutePath());
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private static void flatten(EclipseProject project, List<EclipseProject> out) {
+        out.add(project);
+        for (EclipseProject child : project.getChildren()) flatten(child, out);
+    }
+
+    private static String gradlePath(EclipseProject project) {
+        try {
+            return project.getGradleProject().getPath();
+        } catch (UnsupportedMethodException e) {
+            return project.getName();
+        }
+    }
+
+    private static ProjectModelResolver.Module toModule(EclipseProject project, Map<String, String> pathByName) {
+        List<Path> sources = new ArrayList<>();
+        List<Path> tests = new ArrayList<>();
+        for (EclipseSourceDirectory dir : project.getSourceDirectories()) {
+            File file = dir.getDirectory();
+            // Ресурсы тоже приходят как каталоги исходников
+            if (file == null || file.getName().equals("resources")) continue;
+            Path p = file.toPath().toAbsolutePath().normalize();
+            (isTestOnly(dir::getClasspathAttributes) ? tests : sources).add(p);
+        }
+        Set<Path> classpath = new LinkedHashSet<>();
+        Set<Path> testClasspath = new LinkedHashSet<>();
+        for (EclipseExternalDependency dep : project.getClasspath()) {
+            if (dep.getFile() == null) continue;
+            (isTestOnly(dep::getClasspathAttributes) ? testClasspath : classpath).add(dep.getFile().toPath());
+        }
+        testClasspath.removeAll(classpath);
+        List<String> dependsOn = new ArrayList<>();
+        for (EclipseProjectDependency dep : project.getProjectDependencies()) {
+            String name = dep.getPath().startsWith("/") ? dep.getPath().substring(1) : dep.getPath();
+            dependsOn.add(pathByName.getOrDefault(name, name));
+        }
+        return new ProjectModelResolver.Module(gradlePath(project), project.getProjectDirectory().toPath().toAbsolutePath().normalize(),
+                sources, tests, new ArrayList<>(classpath), new ArrayList<>(testClasspath), dependsOn);
+    }
+
+    // Атрибуты есть с Gradle 7.5; у более старых версий всё считается main
+    private static boolean isTestOnly(Supplier<? extends Iterable<? extends ClasspathAttribute>> attributes) {
+        try {
+            for (ClasspathAttribute a : attributes.get()) {
+                if (a.getName().equals("test") && a.getValue().equals("true")) return true;
+                if (a.getName().equals("gradle_used_by_scope") && !a.getValue().contains("main")) return true;
+            }
+        } catch (UnsupportedMethodException ignored) {
+        }
+        return false;
+    }
+
+    // Gradle пишет вывод кусками, консоль IDE ждёт строки
+    private static final class LineOutput extends OutputStream {
+        private final Consumer<String> sink;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        private LineOutput(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                sink.accept(line.toString(StandardCharsets.UTF_8));
+                line.reset();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) write(b[i]);
+        }
+
+        synchronized void flushLine() {
+            if (line.size() == 0) return;
+            sink.accept(line.toString(StandardCharsets.UTF_8));
+            line.reset();
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.io.IOException;
 import java.util.Objects;
 
 public class HelloApplication extends Application {
+    private IdeController controller;
+
     @Override
     public void start(Stage stage) {
         try {
@@ -19,6 +21,7 @@ public class HelloApplication extends Application {
                 return;
             }
             Scene scene = new Scene(fxmlLoader.load(), 1100, 750);
+            controller = fxmlLoader.getController();
             var cssUrl = HelloApplication.class.getResource("ide.css");
             if (cssUrl != null) {
                 scene.getStylesheets().add(cssUrl.toExternalForm());
@@ -42,4 +45,10 @@ public class HelloApplication extends Application {
             }
         }
     }
+
+    @Override
+    public void stop() {
+        // Подключения к демонам Gradle держат потоки Tooling API
+        if (controller != null) controller.shutdown();
+    }
 }
@@ -9,7 +9,6 @@ import javafx.scene.input.KeyCombination;
 import javafx.geometry.Insets;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.image.Image;
@@ -18,8 +17,10 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.Node;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.Alert.AlertType;
-import javafx.scene.text.Text;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
@@ -28,18 +29,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.fxmisc.richtext.CodeArea;
-import org.fxmisc.richtext.LineNumberFactory;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
 import org.fxmisc.richtext.NavigationActions;
@@ -47,8 +47,9 @@ import org.fxmisc.richtext.NavigationActions;
 public class IdeController {
     @FXML private TreeView<Path> projectTree;
     @FXML private TabPane editorTabs;
-    @FXML private TextArea consoleArea;
+    @FXML private ConsoleView consoleView;
     @FXML private ListView<Problem> problemsList;
+    @FXML private TextField problemsFilterField;
     @FXML private ListView<SearchHit> searchResultsList;
     @FXML private VBox bottomPanel;
     @FXML private TabPane bottomTabs;
@@ -67,9 +68,8 @@ public class IdeController {
     private Path ideRoot;
     private final Map<Path, Tab> openTabsByPath = new HashMap<>();
     private boolean consoleVisible = true;
-    private Process currentRunningProcess;
-    private OutputStream processInput;
-    private CodeIndexer codeIndexer;
+    private RunSessionManager runSessions;
+    private volatile CodeIndexer codeIndexer;
     private SettingsManager settingsManager;
     private javafx.util.Duration autoCompleteDelay = javafx.util.Duration.millis(300);
     private javafx.animation.PauseTransition autoCompleteTimer;
@@ -103,20 +103,35 @@ public class IdeController {
 
     private final ContextMenu completionMenu = new ContextMenu();
 
-    private javafx.animation.PauseTransition diagnosticsTimer;
-    private final Map<Path, List<Problem>> problemsByFile = new ConcurrentHashMap<>();
-    private final ProjectModelResolver modelResolver = new ProjectModelResolver();
+    private final ProblemsModel problemsModel = new ProblemsModel();
+    private javafx.animation.PauseTransition problemsFilterTimer;
+    private final GradleConnections gradleConnections = new GradleConnections();
+    private final ProjectModelResolver modelResolver = new ProjectModelResolver(gradleConnections);
+    private final DiagnosticsEngine diagnosticsEngine = new DiagnosticsEngine(msg -> Platform.runLater(() -> logToConsole(msg)));
+    private final DiagnosticsCache diagnosticsCache = new DiagnosticsCache();
+    private final BackgroundAnalyzer backgroundAnalyzer = new BackgroundAnalyzer(this::collectProblems, this::publishProblemsFromDisk, this::clearProblems);
+    private final DiagnosticsScheduler diagnosticsScheduler = new DiagnosticsScheduler(this::parseProblems, this::collectProblems, this::dirtyJavaBuffers, (file, problems) -> {
+        problemsModel.set(file, problems);
+        updateProblemCounts();
+        refreshProblemOverlay(file);
+    });
     private volatile ProjectModelResolver.ProjectModel projectModel = new ProjectModelResolver.ProjectModel(List.of(), List.of());
+    private final ProjectModelCache modelCache = new ProjectModelCache();
+    private ProjectDetector.ProjectType projectType;
     private final RecentFilesManager recentFiles = new RecentFilesManager(25);
     private final RefactorRenameService renameService = new RefactorRenameService();
     private final RefactorUndoManager undoManager = new RefactorUndoManager();
     private final FileOperationsService fileOps = new FileOperationsService();
-    private final ExePackager exePackager = new ExePackager(this::logToConsole, this::updateStatus);
-    private final Map<Path, Set<Integer>> breakpoints = new ConcurrentHashMap<>();
+    private final SaveService saveService = new SaveService();
+    private javafx.animation.PauseTransition autosaveTimer;
+    private final ProcessService processes = new ProcessService(this::logLinesToConsole);
+    private final ExePackager exePackager = new ExePackager(this::logToConsole, this::updateStatus, gradleConnections, processes);
+    private final Map<Path, BitSet> breakpoints = new ConcurrentHashMap<>();
     private final DebugSession debugSession = new DebugSession(this::appendDebugLine);
     private WatchService fileWatcher;
     private Thread fileWatcherThread;
     private javafx.animation.PauseTransition treeRefreshTimer;
+    private javafx.animation.PauseTransition modelRefreshTimer;
 
     private static final class SearchHit {
         private final Path file;
@@ -139,6 +154,7 @@ public class IdeController {
     public void initialize() {
         ideRoot = Paths.get(System.getProperty("user.dir")).toAbsolutePath().normalize();
         settingsManager = new SettingsManager(ideRoot);
+        diagnosticsEngine.setAnnotationProcessing(settingsManager.getBoolean(SettingsManager.KEY_ANNOTATION_PROCESSING, false));
         
         // Применяем тему после того, как Scene будет доступна
         Platform.runLater(() -> {
@@ -228,12 +244,15 @@ public class IdeController {
             );
         });
         
-        // Автоскролл консоли
-        consoleArea.textProperty().addListener((obs, old, newVal) -> {
-            if (newVal != null && !newVal.isEmpty()) {
-                consoleArea.setScrollTop(Double.MAX_VALUE);
-            }
-        });
+        runSessions = new RunSessionManager(bottomTabs, processes);
+        consoleView.setOnInput(this::sendConsoleInput);
+        int consoleMaxLines = settingsManager.getInt(SettingsManager.KEY_CONSOLE_MAX_LINES, ConsoleView.DEFAULT_MAX_LINES);
+        consoleView.setMaxLines(consoleMaxLines);
+        runSessions.setMaxLines(consoleMaxLines);
+        String consoleFont = settingsManager.get(SettingsManager.KEY_FONT_FAMILY, "Consolas");
+        int consoleFontSize = settingsManager.getInt(SettingsManager.KEY_FONT_SIZE, 13);
+        consoleView.setFont(consoleFont, consoleFontSize);
+        runSessions.setFont(consoleFont, consoleFontSize);
         
         // Настройка ComboBox для выбора цели запуска
         if (runTargetComboBox != null) {
@@ -294,7 +313,8 @@ public class IdeController {
         StringBuilder sb = new StringBuilder();
         for (var e : breakpoints.entrySet()) {
             Path f = e.getKey();
-            for (Integer ln : e.getValue()) {
+            BitSet bits = e.getValue();
+            for (int ln = bits.nextSetBit(1); ln >= 0; ln = bits.nextSetBit(ln + 1)) {
                 sb.append(f.getFileName()).append(":").append(ln).append("\n");
             }
         }
@@ -305,26 +325,6 @@ public class IdeController {
         a.showAndWait();
     }
 
-    private static final class Problem {
-        private final Path file;
-        private final int line; // 1-based
-        private final String kind; // error|warning|note
-        private final String message;
-
-        private Problem(Path file, int line, String kind, String message) {
-            this.file = file;
-            this.line = line;
-            this.kind = kind;
-            this.message = message;
-        }
-
-        @Override
-        public String toString() {
-            String fn = file != null && file.getFileName() != null ? file.getFileName().toString() : String.valueOf(file);
-            return fn + ":" + line + " [" + kind + "] " + message;
-        }
-    }
-
     @FXML
     public void onNewProject() {
         DirectoryChooser chooser = new DirectoryChooser();
@@ -433,11 +433,17 @@ public class IdeController {
         }
 
         if (problemsList != null) {
+            problemsList.setItems(problemsModel.view());
+            if (problemsFilterField != null) {
+                problemsFilterTimer = new javafx.animation.PauseTransition(javafx.util.Duration.millis(200));
+                problemsFilterTimer.setOnFinished(e -> applyProblemsFilter());
+                problemsFilterField.textProperty().addListener((obs, o, n) -> problemsFilterTimer.playFromStart());
+            }
             problemsList.setOnMouseClicked(e -> {
                 if (e.getClickCount() != 2) return;
                 Problem p = problemsList.getSelectionModel().getSelectedItem();
                 if (p == null || p.file == null) return;
-                openFileAndGoTo(p.file, p.line);
+                openFileAndGoTo(p.file, p.line, p.column);
             });
 
             ContextMenu cm = new ContextMenu();
@@ -567,7 +573,7 @@ public class IdeController {
         if (tab == null) return;
         EditorTabData data = (EditorTabData) tab.getUserData();
         if (data == null || data.editor == null) return;
-        scheduleDiagnostics(file, data.editor.getText());
+        scheduleDiagnostics(file, data.editor::getText);
     }
 
     @FXML
@@ -761,9 +767,9 @@ public class IdeController {
                     Tab opened = openTabsByPath.remove(oldAbs);
                     if (opened != null) {
                         openTabsByPath.put(newAbs, opened);
-                        opened.setText(newAbs.getFileName() != null ? newAbs.getFileName().toString() : newAbs.toString());
                         EditorTabData td = (EditorTabData) opened.getUserData();
                         if (td != null) td.path = newAbs;
+                        updateTabTitle(opened);
                     }
                     refreshTreeIfUnderRoot(newAbs);
                     updateStatus("Renamed file to: " + newAbs.getFileName());
@@ -838,9 +844,9 @@ public class IdeController {
                 Tab opened = openTabsByPath.remove(oldAbs);
                 if (opened != null) {
                     openTabsByPath.put(newAbs, opened);
-                    opened.setText(newAbs.getFileName() != null ? newAbs.getFileName().toString() : newAbs.toString());
                     EditorTabData td = (EditorTabData) opened.getUserData();
                     if (td != null) td.path = newAbs;
+                    updateTabTitle(opened);
                 }
 
                 // Если это Java-файл и имя класса совпадало с именем файла — переименуем класс внутри
@@ -895,7 +901,9 @@ public class IdeController {
         }
         editorTabs.getTabs().removeIf(t -> {
             EditorTabData d = (EditorTabData) t.getUserData();
-            return d != null && d.editor != null;
+            if (d == null || d.editor == null) return false;
+            fireTabClosed(t);
+            return true;
         });
         for (Path p : toReopen) {
             openTabsByPath.remove(p.normalize().toAbsolutePath());
@@ -951,6 +959,11 @@ public class IdeController {
         a.add(new ActionItem("Open File...", this::onOpenFile));
         a.add(new ActionItem("Save", this::onSave));
         a.add(new ActionItem("Save As...", this::onSaveAs));
+        a.add(new ActionItem("Save All", this::onSaveAll));
+        a.add(new ActionItem("Diagnostics: Compiler Session Stats", () -> {
+            logToConsole("[diagnostics] " + diagnosticsEngine.sessionStats());
+            logToConsole("[diagnostics] " + diagnosticsCache.stats());
+        }));
         a.add(new ActionItem("Clone from GitHub...", this::onCloneFromGitHub));
         a.add(new ActionItem("Gradle: build", this::onGradleBuild));
         a.add(new ActionItem("Gradle: run", this::onGradleRun));
@@ -1123,8 +1136,8 @@ public class IdeController {
         String cls = inferClassName(javaFile);
         if (cls == null || cls.isBlank()) return;
 
-        Set<Integer> lines = breakpoints.getOrDefault(javaFile, Set.of());
-        for (Integer ln : lines) {
+        BitSet lines = breakpoints.getOrDefault(javaFile, new BitSet());
+        for (int ln = lines.nextSetBit(1); ln >= 0; ln = lines.nextSetBit(ln + 1)) {
             debugSession.send("stop at " + cls + ":" + ln);
         }
     }
@@ -1182,7 +1195,7 @@ public class IdeController {
         // Определяем тип проекта и запускаем соответствующим способом
         ProjectDetector.ProjectType type = ProjectDetector.detectProjectType(projectRoot);
         switch (type) {
-            case GRADLE -> runGradleIn(projectRoot, "run");
+            case GRADLE -> runGradleIn(projectRoot, gradleTaskForCurrentModule("run"));
             case MAVEN -> runMaven(projectRoot, "exec:java");
             case INTELLIJ_IDEA -> {
                 logToConsole("IntelliJ IDEA project detected.");
@@ -1191,7 +1204,12 @@ public class IdeController {
                 // Пробуем найти библиотеки из IntelliJ IDEA конфигурации
                 IntelliJProjectRunner runner = new IntelliJProjectRunner(
                     this::logToConsole,
-                    () -> updateStatus("Running IntelliJ IDEA project...")
+                    () -> updateStatus("Running IntelliJ IDEA project..."),
+                    null,
+                    this::publishProblemsFromDisk,
+                    codeIndexer,
+                    processes,
+                    runSessions
                 );
                 runner.run(projectRoot);
             }
@@ -1211,7 +1229,12 @@ public class IdeController {
                 } else {
                     JavaProjectRunner runner = new JavaProjectRunner(
                         this::logToConsole,
-                        () -> updateStatus("Running Java project...")
+                        () -> updateStatus("Running Java project..."),
+                        null,
+                        this::publishProblemsFromDisk,
+                        codeIndexer,
+                        processes,
+                        runSessions
                     );
                     runner.run(projectRoot);
                 }
@@ -1237,27 +1260,21 @@ public class IdeController {
         if (currentTab != null) {
             EditorTabData data = (EditorTabData) currentTab.getUserData();
             if (data != null && data.path != null && data.path.toString().endsWith(".java")) {
-                // Проверяем, есть ли main метод в текущем файле
-                try {
-                    String content = Files.readString(data.path, StandardCharsets.UTF_8);
-                    if (content.contains("public static void main") && 
-                        (content.contains("String[] args") || content.contains("String args"))) {
-                        ApplicationType appType = detectApplicationType(data.path);
-                        String typeLabel = appType == ApplicationType.GUI ? " (GUI)" : 
-                                          appType == ApplicationType.CONSOLE ? " (Console)" : "";
-                        targets.add(new RunTarget("Current File" + typeLabel, data.path, RunTargetType.CURRENT_FILE));
-                    }
-                } catch (IOException e) {
-                    // Игнорируем
+                // Файл вне индекса (или индекс ещё строится) - разбираем текст из редактора
+                CodeIndexer.FileFacts facts = codeIndexer != null ? codeIndexer.factsOf(data.path) : null;
+                if (facts == null) facts = CodeIndexer.analyze(data.editor.getText());
+                if (facts.hasMain) {
+                    targets.add(new RunTarget("Current File" + typeLabel(facts), data.path, RunTargetType.CURRENT_FILE));
                 }
             }
         }
         
-        // Ищем все файлы с main методом в проекте
-        List<Path> mainClasses = findAllMainClasses(projectRoot);
-        for (Path mainClass : mainClasses) {
-            String displayName = getDisplayNameForPath(mainClass);
-            targets.add(new RunTarget(displayName, mainClass, RunTargetType.MAIN_CLASS));
+        // Все файлы с main методом в проекте - из индекса, без чтения файлов
+        if (codeIndexer != null) {
+            for (Path mainClass : codeIndexer.mainClasses(projectRoot)) {
+                String displayName = getDisplayNameForPath(mainClass, codeIndexer.factsOf(mainClass));
+                targets.add(new RunTarget(displayName, mainClass, RunTargetType.MAIN_CLASS));
+            }
         }
         
         // Обновляем ComboBox
@@ -1269,100 +1286,25 @@ public class IdeController {
         }
     }
     
-    private List<Path> findAllMainClasses(Path root) {
-        List<Path> mainClasses = new ArrayList<>();
-        try {
-            Files.walk(root, 20)
-                    .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .filter(p -> !shouldHidePath(p.getParent()))
-                    .forEach(p -> {
-                        try {
-                            String content = Files.readString(p, StandardCharsets.UTF_8);
-                            if (content.contains("public static void main") && 
-                                (content.contains("String[] args") || content.contains("String args"))) {
-                                mainClasses.add(p);
-                            }
-                        } catch (IOException e) {
-                            // Игнорируем
-                        }
-                    });
-        } catch (IOException e) {
-            // Игнорируем
-        }
-        return mainClasses;
-    }
-    
-    private String getDisplayNameForPath(Path path) {
+    private String getDisplayNameForPath(Path path, CodeIndexer.FileFacts facts) {
         String baseName;
         if (projectRoot == null) {
             baseName = path.getFileName().toString();
         } else {
             try {
-                Path relative = projectRoot.relativize(path);
+                Path relative = projectRoot.toAbsolutePath().normalize().relativize(path);
                 baseName = relative.toString().replace(File.separator, ".").replace(".java", "");
             } catch (IllegalArgumentException e) {
                 baseName = path.getFileName().toString();
             }
         }
         
-        // Определяем тип приложения и добавляем метку
-        ApplicationType appType = detectApplicationType(path);
-        String typeLabel = appType == ApplicationType.GUI ? " (GUI)" : 
-                          appType == ApplicationType.CONSOLE ? " (Console)" : "";
-        
-        return baseName + typeLabel;
+        return baseName + typeLabel(facts);
     }
     
-    private enum ApplicationType {
-        CONSOLE,  // Консольное приложение
-        GUI,      // Оконное приложение (Swing/JavaFX)
-        UNKNOWN   // Неизвестно
-    }
-    
-    private ApplicationType detectApplicationType(Path javaFile) {
-        if (!javaFile.toString().endsWith(".java")) {
-            return ApplicationType.UNKNOWN;
-        }
-        
-        try {
-            String content = Files.readString(javaFile, StandardCharsets.UTF_8);
-            
-            // Проверяем наличие main метода
-            boolean hasMain = content.contains("public static void main") && 
-                             (content.contains("String[] args") || content.contains("String args"));
-            
-            if (!hasMain) {
-                return ApplicationType.UNKNOWN;
-            }
-            
-            // Проверяем наличие GUI библиотек
-            boolean hasJavaFX = content.contains("javafx.") || 
-                               content.contains("import javafx") ||
-                               content.contains("extends Application") ||
-                               content.contains("Application.launch");
-            
-            boolean hasSwing = content.contains("javax.swing") ||
-                              content.contains("import javax.swing") ||
-                              content.contains("JFrame") ||
-                              content.contains("JDialog") ||
-                              content.contains("JWindow") ||
-                              content.contains("JApplet");
-            
-            boolean hasAWT = content.contains("java.awt") &&
-                            (content.contains("Frame") || content.contains("Window") || 
-                             content.contains("Dialog") || content.contains("Applet"));
-            
-            if (hasJavaFX || hasSwing || hasAWT) {
-                return ApplicationType.GUI;
-            }
-            
-            // Если есть main, но нет GUI библиотек - консольное
-            return ApplicationType.CONSOLE;
-            
-        } catch (IOException e) {
-            return ApplicationType.UNKNOWN;
-        }
+    private static String typeLabel(CodeIndexer.FileFacts facts) {
+        if (facts == null || !facts.hasMain) return "";
+        return facts.gui ? " (GUI)" : " (Console)";
     }
     
     private void runSelectedTarget(RunTarget target) {
@@ -1395,36 +1337,22 @@ public class IdeController {
                 IntelliJProjectRunner runner = new IntelliJProjectRunner(
                     this::logToConsole,
                     () -> updateStatus("Running: " + javaFile.getFileName()),
-                    p -> {
-                        currentRunningProcess = p;
-                        if (p != null) {
-                            try {
-                                processInput = p.getOutputStream();
-                            } catch (Exception e) {
-                                processInput = null;
-                            }
-                        } else {
-                            processInput = null;
-                        }
-                    }
+                    null,
+                    this::publishProblemsFromDisk,
+                    codeIndexer,
+                    processes,
+                    runSessions
                 );
                 runner.runFile(projectRoot, javaFile);
             } else {
                 JavaProjectRunner runner = new JavaProjectRunner(
                     this::logToConsole,
                     () -> updateStatus("Running: " + javaFile.getFileName()),
-                    p -> {
-                        currentRunningProcess = p;
-                        if (p != null) {
-                            try {
-                                processInput = p.getOutputStream();
-                            } catch (Exception e) {
-                                processInput = null;
-                            }
-                        } else {
-                            processInput = null;
-                        }
-                    }
+                    null,
+                    this::publishProblemsFromDisk,
+                    codeIndexer,
+                    processes,
+                    runSessions
                 );
                 runner.runFile(projectRoot, javaFile);
             }
@@ -1447,28 +1375,22 @@ public class IdeController {
                 IntelliJProjectRunner runner = new IntelliJProjectRunner(
                         this::logToConsole,
                         () -> updateStatus("Debug: " + javaFile.getFileName()),
-                        p -> {
-                            currentRunningProcess = p;
-                            if (p != null) {
-                                try { processInput = p.getOutputStream(); } catch (Exception e) { processInput = null; }
-                            } else {
-                                processInput = null;
-                            }
-                        }
+                        null,
+                        this::publishProblemsFromDisk,
+                        codeIndexer,
+                        processes,
+                        runSessions
                 );
                 runner.debugFile(projectRoot, javaFile);
             } else {
                 JavaProjectRunner runner = new JavaProjectRunner(
                         this::logToConsole,
                         () -> updateStatus("Debug: " + javaFile.getFileName()),
-                        p -> {
-                            currentRunningProcess = p;
-                            if (p != null) {
-                                try { processInput = p.getOutputStream(); } catch (Exception e) { processInput = null; }
-                            } else {
-                                processInput = null;
-                            }
-                        }
+                        null,
+                        this::publishProblemsFromDisk,
+                        codeIndexer,
+                        processes,
+                        runSessions
                 );
                 runner.debugFile(projectRoot, javaFile);
             }
@@ -1479,45 +1401,18 @@ public class IdeController {
         }
     }
     
-    @FXML
-    public void onConsoleKeyPressed(javafx.scene.input.KeyEvent event) {
-        if (currentRunningProcess == null || processInput == null) {
-            // Если процесс не запущен, разрешаем обычное редактирование
+    /** Строка из поля ввода общей консоли - в stdin последней запущенной программы. */
+    private void sendConsoleInput(String line) {
+        RunSessionManager.RunSession session = runSessions.active();
+        if (session == null || !session.isRunning()) {
+            updateStatus("No running process to send input to");
             return;
         }
-        
-        if (event.getCode() == KeyCode.ENTER) {
-            String text = consoleArea.getText();
-            int caretPos = consoleArea.getCaretPosition();
-            
-            // Находим последнюю строку (после последнего \n)
-            int lastNewline = text.lastIndexOf('\n', caretPos - 1);
-            if (lastNewline < 0) lastNewline = 0;
-            
-            // Берем текст от последнего \n до текущей позиции (без trim, чтобы сохранить пробелы)
-            String lineToSend = text.substring(lastNewline + 1, caretPos);
-            
-            try {
-                // Отправляем строку с переводом строки в UTF-8
-                byte[] bytes = (lineToSend + "\r\n").getBytes(StandardCharsets.UTF_8);
-                processInput.write(bytes);
-                processInput.flush();
-                
-                // Добавляем новую строку в консоль для визуального отображения
-                Platform.runLater(() -> {
-                    int pos = consoleArea.getCaretPosition();
-                    if (pos < consoleArea.getLength()) {
-                        consoleArea.insertText(pos, "\n");
-                        consoleArea.positionCaret(pos + 1);
-                    } else {
-                        consoleArea.appendText("\n");
-                        consoleArea.positionCaret(consoleArea.getLength());
-                    }
-                });
-            } catch (IOException e) {
-                Platform.runLater(() -> logToConsole("Failed to send input: " + e.getMessage()));
-            }
-            event.consume();
+        try {
+            session.send(line);
+            logToConsole("[" + session.name() + "] " + line);
+        } catch (IOException e) {
+            logToConsole("Failed to send input: " + e.getMessage());
         }
     }
     
@@ -1555,67 +1450,34 @@ public class IdeController {
         
         updateStatus("Running Maven: " + goal);
         
-        runCommandInDirectory(command, root, "maven-runner");
+        runCommandInDirectory(command, root, "mvn " + goal);
     }
     
     
-    private void runCommandInDirectory(List<String> command, Path directory, String threadName) {
-        runCommandInDirectory(command, directory, threadName, null);
+    private void runCommandInDirectory(List<String> command, Path directory, String sessionName) {
+        runCommandInDirectory(command, directory, sessionName, null);
     }
     
-    private void runCommandInDirectory(List<String> command, Path directory, String threadName, Runnable onSuccess) {
+    /** Команда получает свою сессию: вкладку с консолью и вводом. */
+    private void runCommandInDirectory(List<String> command, Path directory, String sessionName, Runnable onSuccess) {
         final Path finalDir = directory.normalize().toAbsolutePath();
         
-        Thread t = new Thread(() -> {
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.directory(finalDir.toFile());
-            pb.redirectErrorStream(true);
-            try {
-                Process p = pb.start();
-                
-                // Сохраняем OutputStream для интерактивного ввода
-                Platform.runLater(() -> {
-                    currentRunningProcess = p;
-                    try {
-                        processInput = p.getOutputStream();
-                    } catch (Exception e) {
-                        processInput = null;
-                    }
-                });
-                
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String finalLine = line;
-                        Platform.runLater(() -> logToConsole(finalLine));
+        try {
+            runSessions.start(sessionName, command, finalDir, null, code -> {
+                logToConsole(sessionName + " finished with exit code: " + code);
+                if (code == 0) {
+                    updateStatus("Done");
+                    if (onSuccess != null) {
+                        onSuccess.run();
                     }
+                } else {
+                    updateStatus("Failed (exit " + code + ")");
                 }
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    currentRunningProcess = null;
-                    processInput = null;
-                    logToConsole("Process finished with exit code: " + code);
-                    if (code == 0) {
-                        updateStatus("Done");
-                        if (onSuccess != null) {
-                            onSuccess.run();
-                        }
-                    } else {
-                        updateStatus("Failed (exit " + code + ")");
-                    }
-                });
-            } catch (Exception ex) {
-                Platform.runLater(() -> {
-                    currentRunningProcess = null;
-                    processInput = null;
-                    logToConsole("Failed to run command: " + ex.getMessage());
-                    updateStatus("Failed");
-                });
-            }
-        }, threadName);
-        t.setDaemon(true);
-        t.start();
+            });
+        } catch (IOException ex) {
+            logToConsole("Failed to run command: " + ex.getMessage());
+            updateStatus("Failed");
+        }
     }
 
     @FXML
@@ -1656,9 +1518,24 @@ public class IdeController {
             onSaveAs();
             return;
         }
+        if (!data.isDirty() && Files.exists(data.path)) {
+            updateStatus("No changes to save");
+            return;
+        }
         saveTabToPath(tab, data.path);
     }
 
+    @FXML
+    public void onSaveAll() {
+        Map<Tab, Path> dirty = dirtyEditorTabs();
+        if (dirty.isEmpty()) {
+            updateStatus("No unsaved changes");
+            return;
+        }
+        saveTabs(dirty, false);
+        updateStatus("Saving " + dirty.size() + " file(s)");
+    }
+
     @FXML
     public void onSaveAs() {
         Tab tab = editorTabs.getSelectionModel().getSelectedItem();
@@ -1680,13 +1557,13 @@ public class IdeController {
         Path path = file.toPath();
         saveTabToPath(tab, path);
         data.path = path;
-        tab.setText(path.getFileName() != null ? path.getFileName().toString() : path.toString());
+        updateTabTitle(tab);
         openTabsByPath.put(path.normalize().toAbsolutePath(), tab);
         refreshTreeIfUnderRoot(path);
     }
 
     @FXML public void onGradleBuild() { runGradle("build"); }
-    @FXML public void onGradleRun() { runGradle("run"); }
+    @FXML public void onGradleRun() { runGradle(gradleTaskForCurrentModule("run")); }
     @FXML public void onGradleTest() { runGradle("test"); }
     @FXML public void onGradleClean() { runGradle("clean"); }
 
@@ -1704,9 +1581,16 @@ public class IdeController {
         exePackager.packageAsExe(projectRoot, type);
     }
 
+    @FXML
+    public void onStopProcesses() {
+        int stopped = processes.cancelAll();
+        gradleConnections.cancelAll();
+        updateStatus(stopped > 0 ? "Stopping " + stopped + " process(es)" : "Nothing to stop");
+    }
+
     @FXML
     public void onClearConsole() {
-        consoleArea.clear();
+        consoleView.clear();
     }
     
     @FXML
@@ -1714,14 +1598,24 @@ public class IdeController {
         Tab tab = editorTabs.getSelectionModel().getSelectedItem();
         if (tab != null) {
             editorTabs.getTabs().remove(tab);
+            fireTabClosed(tab);
         }
     }
     
     @FXML
     public void onCloseAllTabs() {
+        List<Tab> tabs = new ArrayList<>(editorTabs.getTabs());
         editorTabs.getTabs().clear();
+        tabs.forEach(IdeController::fireTabClosed);
         openTabsByPath.clear();
     }
+
+    // Программное удаление вкладки не вызывает onClosed - освобождаем ресурсы вручную
+    private static void fireTabClosed(Tab tab) {
+        if (tab != null && tab.getOnClosed() != null) {
+            tab.getOnClosed().handle(new javafx.event.Event(Tab.CLOSED_EVENT));
+        }
+    }
     
     @FXML
     public void onFind() {
@@ -1918,6 +1812,26 @@ public class IdeController {
             settingsManager.getInt(SettingsManager.KEY_AUTO_COMPLETE_DELAY, 300));
         delaySpinner.setEditable(true);
         
+        // Автосохранение
+        Label autosaveLabel = new Label("Autosave:");
+        CheckBox autosaveCheck = new CheckBox("Save modified files automatically");
+        autosaveCheck.setSelected(settingsManager.getBoolean(SettingsManager.KEY_AUTOSAVE, false));
+        Label autosaveDelayLabel = new Label("Autosave Delay (ms):");
+        Spinner<Integer> autosaveDelaySpinner = new Spinner<>(500, 60000,
+            settingsManager.getInt(SettingsManager.KEY_AUTOSAVE_DELAY, 1500), 500);
+        autosaveDelaySpinner.setEditable(true);
+        
+        // Процессоры аннотаций в диагностике
+        Label processorsLabel = new Label("Diagnostics:");
+        CheckBox processorsCheck = new CheckBox("Run annotation processors (Lombok, MapStruct, ...)");
+        processorsCheck.setSelected(settingsManager.getBoolean(SettingsManager.KEY_ANNOTATION_PROCESSING, false));
+        
+        // Лимит строк консоли
+        Label consoleLimitLabel = new Label("Console Line Limit:");
+        Spinner<Integer> consoleLimitSpinner = new Spinner<>(10_000, 5_000_000,
+            settingsManager.getInt(SettingsManager.KEY_CONSOLE_MAX_LINES, ConsoleView.DEFAULT_MAX_LINES), 10_000);
+        consoleLimitSpinner.setEditable(true);
+        
         grid.add(themeLabel, 0, 0);
         grid.add(themeCombo, 1, 0);
         grid.add(fontLabel, 0, 1);
@@ -1928,6 +1842,14 @@ public class IdeController {
         grid.add(autoCompleteCheck, 1, 3);
         grid.add(delayLabel, 0, 4);
         grid.add(delaySpinner, 1, 4);
+        grid.add(autosaveLabel, 0, 5);
+        grid.add(autosaveCheck, 1, 5);
+        grid.add(autosaveDelayLabel, 0, 6);
+        grid.add(autosaveDelaySpinner, 1, 6);
+        grid.add(processorsLabel, 0, 7);
+        grid.add(processorsCheck, 1, 7);
+        grid.add(consoleLimitLabel, 0, 8);
+        grid.add(consoleLimitSpinner, 1, 8);
         
         dialog.getDialogPane().setContent(grid);
         
@@ -1938,6 +1860,20 @@ public class IdeController {
                 settingsManager.setInt(SettingsManager.KEY_FONT_SIZE, fontSizeSpinner.getValue());
                 settingsManager.setBoolean(SettingsManager.KEY_AUTO_COMPLETE, autoCompleteCheck.isSelected());
                 settingsManager.setInt(SettingsManager.KEY_AUTO_COMPLETE_DELAY, delaySpinner.getValue());
+                settingsManager.setBoolean(SettingsManager.KEY_AUTOSAVE, autosaveCheck.isSelected());
+                settingsManager.setInt(SettingsManager.KEY_AUTOSAVE_DELAY, autosaveDelaySpinner.getValue());
+                settingsManager.setInt(SettingsManager.KEY_CONSOLE_MAX_LINES, consoleLimitSpinner.getValue());
+                consoleView.setMaxLines(consoleLimitSpinner.getValue());
+                runSessions.setMaxLines(consoleLimitSpinner.getValue());
+                boolean processors = processorsCheck.isSelected();
+                if (processors != settingsManager.getBoolean(SettingsManager.KEY_ANNOTATION_PROCESSING, false)) {
+                    settingsManager.setBoolean(SettingsManager.KEY_ANNOTATION_PROCESSING, processors);
+                    diagnosticsEngine.setAnnotationProcessing(processors);
+                    // Прежние результаты получены с другими опциями компилятора
+                    diagnosticsCache.clear();
+                    for (Path open : new ArrayList<>(openTabsByPath.keySet())) refreshDiagnosticsForOpenTabIfAny(open);
+                    backgroundAnalyzer.reset(projectModel.sourceRoots);
+                }
                 
                 applyTheme(themeCombo.getValue());
                 applyFontSettings(fontField.getText(), fontSizeSpinner.getValue());
@@ -2092,60 +2028,39 @@ public class IdeController {
         logToConsole("Cloning repository: " + url);
         logToConsole("Target directory: " + targetDir);
         
-        Thread cloneThread = new Thread(() -> {
-            try {
-                boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-                List<String> command = new ArrayList<>();
-                
-                if (isWindows) {
-                    command.addAll(List.of("cmd.exe", "/c", "git", "clone", url));
-                } else {
-                    command.addAll(List.of("git", "clone", url));
-                }
-                
-                ProcessBuilder pb = new ProcessBuilder(command);
-                pb.directory(targetDir);
-                pb.redirectErrorStream(true);
-                
-                Process p = pb.start();
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String finalLine = line;
-                        Platform.runLater(() -> logToConsole(finalLine));
+        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
+        List<String> command = new ArrayList<>();
+        
+        if (isWindows) {
+            command.addAll(List.of("cmd.exe", "/c", "git", "clone", url));
+        } else {
+            command.addAll(List.of("git", "clone", url));
+        }
+        
+        try {
+            processes.start("git-clone", command, targetDir.toPath(), code -> {
+                if (code == 0) {
+                    logToConsole("Repository cloned successfully!");
+                    updateStatus("Clone completed");
+                    // Предлагаем открыть проект
+                    Path clonedPath = targetDir.toPath();
+                    if (url.contains("/")) {
+                        String repoName = url.substring(url.lastIndexOf('/') + 1).replace(".git", "");
+                        clonedPath = clonedPath.resolve(repoName);
                     }
-                }
-                
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    if (code == 0) {
-                        logToConsole("Repository cloned successfully!");
-                        updateStatus("Clone completed");
-                        // Предлагаем открыть проект
-                        Path clonedPath = targetDir.toPath();
-                        if (url.contains("/")) {
-                            String repoName = url.substring(url.lastIndexOf('/') + 1).replace(".git", "");
-                            clonedPath = clonedPath.resolve(repoName);
-                        }
-                        if (Files.exists(clonedPath)) {
-                            setProjectRoot(clonedPath);
-                        }
-                    } else {
-                        logToConsole("Clone failed with exit code: " + code);
-                        updateStatus("Clone failed");
+                    if (Files.exists(clonedPath)) {
+                        setProjectRoot(clonedPath);
                     }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    logToConsole("Failed to clone repository: " + e.getMessage());
-                    logToConsole("Make sure Git is installed and in PATH");
+                } else {
+                    logToConsole("Clone failed with exit code: " + code);
                     updateStatus("Clone failed");
-                });
-            }
-        }, "git-clone");
-        cloneThread.setDaemon(true);
-        cloneThread.start();
+                }
+            });
+        } catch (IOException e) {
+            logToConsole("Failed to clone repository: " + e.getMessage());
+            logToConsole("Make sure Git is installed and in PATH");
+            updateStatus("Clone failed");
+        }
     }
     
     private void updateStatus(String message) {
@@ -2180,6 +2095,8 @@ public class IdeController {
         }
         
         stopFileWatcher();
+        // Сборки прежнего проекта больше никому не нужны
+        gradleConnections.cancelAll();
         projectRoot = actualRoot;
         rootLabel.setText(projectRoot.toString());
         projectTree.setRoot(buildFileTreeRoot(projectRoot));
@@ -2190,20 +2107,19 @@ public class IdeController {
         ProjectDetector.ProjectType detectedType = ProjectDetector.detectProjectType(projectRoot);
         logToConsole("Project type: " + detectedType);
 
-        Thread pm = new Thread(() -> {
-            ProjectModelResolver.ProjectModel m = modelResolver.resolve(projectRoot, detectedType);
-            projectModel = m;
-            Platform.runLater(() -> logToConsole("Project model: srcRoots=" + m.sourceRoots.size() + ", cp=" + m.classpath.size()));
-        }, "project-model");
-        pm.setDaemon(true);
-        pm.start();
+        projectType = detectedType;
+        loadProjectModel(projectRoot, detectedType);
         
         // Индексируем проект для автодополнения
-        codeIndexer = new CodeIndexer(projectRoot);
+        CodeIndexer indexer = new CodeIndexer(projectRoot);
+        codeIndexer = indexer;
         Thread indexThread = new Thread(() -> {
             logToConsole("Indexing project for code completion...");
-            codeIndexer.indexProject();
-            Platform.runLater(() -> logToConsole("Project indexed. Code completion ready."));
+            indexer.indexProject();
+            Platform.runLater(() -> {
+                logToConsole("Project indexed. Code completion ready.");
+                if (codeIndexer == indexer) refreshRunTargets();
+            });
         }, "code-indexer");
         indexThread.setDaemon(true);
         indexThread.start();
@@ -2235,6 +2151,8 @@ public class IdeController {
                     fontFamily, fontSize));
             }
         }
+        consoleView.setFont(fontFamily, fontSize);
+        runSessions.setFont(fontFamily, fontSize);
     }
 
     private static Path detectJavaSourceRoot(Path projectRoot) {
@@ -2358,6 +2276,17 @@ public class IdeController {
             return;
         }
 
+        // Очень большие файлы не читаем в память целиком - открываем просмотрщик на mmap
+        try {
+            if (Files.size(abs) > LargeFileViewer.THRESHOLD_BYTES) {
+                openLargeFileViewer(abs);
+                return;
+            }
+        } catch (IOException e) {
+            logToConsole("Failed to open file: " + e.getMessage());
+            return;
+        }
+
         String text;
         try {
             text = Files.readString(abs, StandardCharsets.UTF_8);
@@ -2382,6 +2311,13 @@ public class IdeController {
                 String remaining = text.substring(50000);
                 Platform.runLater(() -> {
                     editor.appendText(remaining);
+                    // Догрузка файла - не правка пользователя
+                    Tab loaded = openTabsByPath.get(abs);
+                    if (loaded != null && loaded.getUserData() instanceof EditorTabData) {
+                        EditorTabData d = (EditorTabData) loaded.getUserData();
+                        d.savedVersion = d.version;
+                        updateTabTitle(loaded);
+                    }
                     applyHighlighting(editor);
                 });
             }, "file-loader");
@@ -2392,7 +2328,9 @@ public class IdeController {
             editor.setParagraphGraphicFactory(createGutter(editor, abs));
         }
 
-        editor.textProperty().addListener((obs, old, newVal) -> applyHighlighting(editor));
+        DocumentChangeBus changeBus = new DocumentChangeBus(editor);
+        ProblemDecorations decorations = new ProblemDecorations(editor, changeBus);
+        changeBus.subscribe(change -> applyHighlighting(editor));
         editor.caretPositionProperty().addListener((obs, old, pos) -> updateCursorPosition(editor));
 
         editor.addEventFilter(javafx.scene.input.MouseEvent.MOUSE_CLICKED, e -> {
@@ -2406,28 +2344,27 @@ public class IdeController {
 
         // Автоматическое автодополнение при вводе
         if (settingsManager.getBoolean(SettingsManager.KEY_AUTO_COMPLETE, true)) {
-            editor.textProperty().addListener((obs, oldVal, newVal) -> {
-                if (oldVal == null || newVal == null) return;
-                
+            changeBus.subscribe(change -> {
                 // Проверяем, что был добавлен символ (не удаление)
-                if (newVal.length() > oldVal.length()) {
-                    int pos = editor.getCaretPosition();
-                    if (pos > 0) {
-                        char lastChar = newVal.charAt(pos - 1);
-                        // Показываем автодополнение после ввода буквы или цифры
-                        if (Character.isJavaIdentifierPart(lastChar) || lastChar == '.') {
-                            scheduleAutoComplete(editor);
-                        }
-                    }
+                String inserted = change.getInserted();
+                if (inserted.isEmpty() || inserted.length() <= change.getRemoved().length()) return;
+                char lastChar = inserted.charAt(inserted.length() - 1);
+                // Показываем автодополнение после ввода буквы или цифры
+                if (Character.isJavaIdentifierPart(lastChar) || lastChar == '.') {
+                    scheduleAutoComplete(editor);
                 }
             });
         }
 
         // Реалтайм диагностика (javac) для Java файлов
         if (abs.toString().toLowerCase().endsWith(".java")) {
-            editor.textProperty().addListener((obs, oldVal, newVal) -> scheduleDiagnostics(abs, newVal));
+            // Текст берётся только когда сработает таймер, а не на каждое нажатие
+            changeBus.subscribe(change -> {
+                diagnosticsScheduler.edited(abs, change, changeBus.lines());
+                scheduleDiagnostics(abs, editor::getText);
+            });
             // Первичная диагностика при открытии
-            scheduleDiagnostics(abs, editor.getText());
+            scheduleDiagnostics(abs, editor::getText);
         }
         
         // Ctrl+Space: принудительный показ автодополнения
@@ -2440,13 +2377,37 @@ public class IdeController {
 
         Tab tab = new Tab(abs.getFileName() != null ? abs.getFileName().toString() : abs.toString());
         tab.setContent(wrapContent(editor));
-        tab.setUserData(new EditorTabData(abs, editor));
-        tab.setOnClosed(evt -> openTabsByPath.remove(abs));
+        EditorTabData tabData = new EditorTabData(abs, editor, changeBus, decorations);
+        tab.setUserData(tabData);
+        // Грязный флаг: версия буфера растёт с каждой правкой, сохранение запоминает записанную версию
+        changeBus.subscribe(change -> {
+            tabData.version++;
+            if (tabData.version == tabData.savedVersion + 1) updateTabTitle(tab);
+            scheduleAutosave();
+        });
+        // Зависимые файлы перепроверяются с текстом буфера, когда правки затихли
+        javafx.animation.PauseTransition analyzeTimer = new javafx.animation.PauseTransition(javafx.util.Duration.millis(1500));
+        analyzeTimer.setOnFinished(e -> {
+            if (tabData.version != tabData.savedVersion) backgroundAnalyzer.bufferChanged(abs, editor.getText());
+        });
+        if (abs.toString().toLowerCase().endsWith(".java")) {
+            changeBus.subscribe(change -> analyzeTimer.playFromStart());
+        }
+        tab.setOnClosed(evt -> {
+            openTabsByPath.remove(abs);
+            analyzeTimer.stop();
+            decorations.close();
+            changeBus.close();
+            diagnosticsScheduler.forget(abs);
+            backgroundAnalyzer.bufferDiscarded(abs);
+        });
 
         editorTabs.getTabs().add(tab);
         editorTabs.getSelectionModel().select(tab);
         openTabsByPath.put(abs, tab);
         applyHighlighting(editor);
+        // Замечания фоновой проверки относятся к тексту на диске, то есть к только что открытому
+        refreshProblemOverlay(abs);
         updateCursorPosition(editor);
         logToConsole("Opened: " + abs);
         recentFiles.markOpened(abs);
@@ -2479,6 +2440,10 @@ public class IdeController {
     }
 
     private void openFileAndGoTo(Path file, int line) {
+        openFileAndGoTo(file, line, 0);
+    }
+
+    private void openFileAndGoTo(Path file, int line, int column) {
         if (file == null) return;
         openFileInEditor(file);
         Platform.runLater(() -> {
@@ -2486,99 +2451,152 @@ public class IdeController {
             if (tab == null) return;
             EditorTabData data = (EditorTabData) tab.getUserData();
             if (data == null || data.editor == null) return;
-            int ln = Math.max(1, line);
-            int para = ln - 1;
-            if (para >= data.editor.getParagraphs().size()) para = data.editor.getParagraphs().size() - 1;
-            data.editor.moveTo(para, 0);
+            LineIndex lines = data.changeBus != null ? data.changeBus.lines() : LineIndex.of(data.editor.getText());
+            int target = Math.min(lines.lineCount(), Math.max(1, line)) - 1;
+            int start = lines.lineStart(target);
+            data.editor.moveTo(Math.min(lines.lineEnd(target), start + Math.max(1, column) - 1));
+            data.editor.requestFollowCaret();
             data.editor.requestFocus();
         });
     }
 
     private IntFunction<Node> createGutter(CodeArea editor, Path file) {
-        IntFunction<Node> base = LineNumberFactory.get(editor);
-        return line -> {
-            Node lnNode = base.apply(line);
-            int ln = line + 1;
-
-            Text dot = new Text("●");
-            dot.setStyle("-fx-fill: transparent;");
-            if (file != null && breakpoints.getOrDefault(file, Set.of()).contains(ln)) {
-                dot.setStyle("-fx-fill: #e51400;");
-            }
-
-            HBox box = new HBox(6, dot, lnNode);
-            box.setOnMouseClicked(e -> {
-                if (file == null) return;
-                toggleBreakpoint(file, ln);
-                dot.setStyle(breakpoints.getOrDefault(file, Set.of()).contains(ln) ? "-fx-fill: #e51400;" : "-fx-fill: transparent;");
-            });
-            return box;
-        };
+        return new BreakpointGutter(editor, breakpoints.computeIfAbsent(file, k -> new BitSet()), line -> toggleBreakpoint(file, line));
     }
 
     private void toggleBreakpoint(Path file, int line) {
-        breakpoints.compute(file, (k, v) -> {
-            Set<Integer> s = (v == null) ? new HashSet<>() : new HashSet<>(v);
-            if (!s.add(line)) s.remove(line);
-            return s;
-        });
-        updateStatus("Breakpoint " + (breakpoints.getOrDefault(file, Set.of()).contains(line) ? "set" : "removed") + ": " + file.getFileName() + ":" + line);
+        BitSet bits = breakpoints.computeIfAbsent(file, k -> new BitSet());
+        bits.flip(line);
+        updateStatus("Breakpoint " + (bits.get(line) ? "set" : "removed") + ": " + file.getFileName() + ":" + line);
         if (debugSession.isReady()) applyBreakpointsToJdb();
     }
 
-    private void scheduleDiagnostics(Path file, String content) {
-        if (file == null) return;
-        if (diagnosticsTimer != null) diagnosticsTimer.stop();
-        diagnosticsTimer = new javafx.animation.PauseTransition(javafx.util.Duration.millis(800));
-        diagnosticsTimer.setOnFinished(e -> runDiagnosticsInBackground(file, content));
-        diagnosticsTimer.play();
-    }
-
-    private void runDiagnosticsInBackground(Path file, String content) {
+    private void scheduleDiagnostics(Path file, Supplier<String> content) {
         if (file == null) return;
-        // Если projectRoot не задан, всё равно попробуем на одном файле
-        Thread t = new Thread(() -> {
-            List<Problem> problems = compileWithJavacAndParseProblems(file, content);
-            problemsByFile.put(file, problems);
-            Platform.runLater(() -> updateProblemsPanel());
-        }, "javac-diagnostics");
-        t.setDaemon(true);
-        t.start();
+        diagnosticsScheduler.schedule(file, content);
     }
 
-    private void updateProblemsPanel() {
-        if (problemsList == null) return;
-        int err = 0;
-        int warn = 0;
-        List<Problem> items = new ArrayList<>();
-        for (var entry : problemsByFile.entrySet()) {
-            for (Problem p : entry.getValue()) {
-                if ("error".equalsIgnoreCase(p.kind)) err++;
-                else if ("warning".equalsIgnoreCase(p.kind)) warn++;
-                items.add(p);
-            }
-        }
-        items.sort((a, b) -> {
-            int ka = "error".equalsIgnoreCase(a.kind) ? 0 : "warning".equalsIgnoreCase(a.kind) ? 1 : 2;
-            int kb = "error".equalsIgnoreCase(b.kind) ? 0 : "warning".equalsIgnoreCase(b.kind) ? 1 : 2;
-            if (ka != kb) return Integer.compare(ka, kb);
-            String fa = a.file != null ? a.file.toString() : "";
-            String fb = b.file != null ? b.file.toString() : "";
-            int fc = fa.compareToIgnoreCase(fb);
-            if (fc != 0) return fc;
-            return Integer.compare(a.line, b.line);
-        });
-        problemsList.getItems().setAll(items);
+    private void updateProblemCounts() {
+        int err = problemsModel.errors();
+        int warn = problemsModel.warnings();
         if (errorCountLabel != null) errorCountLabel.setText(String.valueOf(err));
         if (warningCountLabel != null) warningCountLabel.setText(String.valueOf(warn));
         updateStatus((err == 0 && warn == 0) ? "Ready" : ("⛔ " + err + "  ⚠ " + warn));
     }
 
-    private List<Problem> compileWithJavacAndParseProblems(Path file, String content) {
+    private void applyProblemsFilter() {
+        String q = problemsFilterField.getText() == null ? "" : problemsFilterField.getText().trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            problemsModel.setFilter(null);
+            return;
+        }
+        problemsModel.setFilter(p -> p.toString().toLowerCase(Locale.ROOT).contains(q));
+    }
+
+    private List<Problem> parseProblems(Path file, String content, BooleanSupplier cancelled) throws IOException {
+        return diagnosticsEngine.isAvailable() ? diagnosticsEngine.parse(file, content) : List.of();
+    }
+
+    private void publishProblemsFromDisk(Map<Path, List<Problem>> batch) {
+        for (Map.Entry<Path, List<Problem>> e : batch.entrySet()) {
+            Path file = e.getKey();
+            if (openTabsByPath.containsKey(file)) {
+                // У открытого файла источник истины - буфер редактора, а не диск
+                refreshDiagnosticsForOpenTabIfAny(file);
+            } else {
+                problemsModel.set(file, e.getValue());
+            }
+        }
+        updateProblemCounts();
+    }
+
+    private void clearProblems() {
+        problemsModel.clear();
+        updateProblemCounts();
+        for (Path open : openTabsByPath.keySet()) refreshProblemOverlay(open);
+    }
+
+    private void refreshProblemOverlay(Path file) {
+        Tab tab = openTabsByPath.get(file);
+        if (tab == null) return;
+        EditorTabData data = (EditorTabData) tab.getUserData();
+        if (data == null || data.decorations == null) return;
+        data.decorations.update(problemsModel.get(file), data.changeBus.lines());
+    }
+
+    private List<Problem> collectProblems(Path file, String content, BooleanSupplier cancelled) {
+        return collectProblems(Map.of(file, content), cancelled).getOrDefault(file, List.of());
+    }
+
+    private Map<Path, List<Problem>> collectProblems(Map<Path, String> buffers, BooleanSupplier cancelled) {
+        ProjectModelResolver.ProjectModel model = projectModel;
+        if (model.modules.size() <= 1 && model.modules.stream().allMatch(m -> m.testRoots.isEmpty())) {
+            return collectProblems(buffers, model, cancelled);
+        }
+        // Каждый модуль проверяется со своим classpath и только с исходниками своих зависимостей
+        Map<ProjectModelResolver.ProjectModel, Map<Path, String>> byScope = new LinkedHashMap<>();
+        for (Map.Entry<Path, String> e : buffers.entrySet()) {
+            byScope.computeIfAbsent(model.scopeFor(e.getKey()), k -> new LinkedHashMap<>()).put(e.getKey(), e.getValue());
+        }
+        Map<Path, List<Problem>> result = new LinkedHashMap<>();
+        for (Map.Entry<ProjectModelResolver.ProjectModel, Map<Path, String>> e : byScope.entrySet()) {
+            result.putAll(collectProblems(e.getValue(), e.getKey(), cancelled));
+        }
+        return result;
+    }
+
+    private Map<Path, List<Problem>> collectProblems(Map<Path, String> buffers, ProjectModelResolver.ProjectModel model,
+                                                     BooleanSupplier cancelled) {
+        Map<Path, DiagnosticsCache.Key> keys = diagnosticsCache.keys(buffers, model);
+        Map<Path, List<Problem>> result = new LinkedHashMap<>();
+        for (Map.Entry<Path, DiagnosticsCache.Key> e : keys.entrySet()) {
+            List<Problem> cached = diagnosticsCache.get(e.getValue());
+            if (cached != null) result.put(e.getKey(), cached);
+        }
+        if (result.size() == buffers.size()) return result;
+
+        long epoch = diagnosticsCache.epoch();
+        Map<Path, List<Problem>> checked = null;
+        if (diagnosticsEngine.isAvailable()) {
+            try {
+                checked = diagnosticsEngine.check(buffers, model, cancelled);
+            } catch (CancellationException e) {
+                throw e;
+            } catch (Exception e) {
+                // Падение встроенного компилятора - пробуем отдельный javac
+            }
+        }
+        if (checked == null) {
+            checked = new LinkedHashMap<>();
+            for (Map.Entry<Path, String> e : buffers.entrySet()) {
+                if (result.containsKey(e.getKey())) continue;
+                checked.put(e.getKey(), compileWithJavacAndParseProblems(e.getKey(), e.getValue(), model));
+            }
+        }
+        for (Map.Entry<Path, List<Problem>> e : checked.entrySet()) {
+            diagnosticsCache.put(keys.get(e.getKey()), e.getValue(), epoch);
+            result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    // Несохранённые открытые исходники: пакетная проверка видит их текущий текст, а не файл на диске
+    private Map<Path, String> dirtyJavaBuffers() {
+        Map<Path, String> buffers = new LinkedHashMap<>();
+        for (Map.Entry<Tab, Path> e : dirtyEditorTabs().entrySet()) {
+            if (!e.getValue().toString().endsWith(".java")) continue;
+            EditorTabData data = (EditorTabData) e.getKey().getUserData();
+            buffers.put(e.getValue().normalize().toAbsolutePath(), data.editor.getText());
+        }
+        return buffers;
+    }
+
+    // Запасной путь, если IDE запущена без jdk.compiler
+    private List<Problem> compileWithJavacAndParseProblems(Path file, String content, ProjectModelResolver.ProjectModel model) {
         List<Problem> result = new ArrayList<>();
+        Path tmpDir = null;
         try {
-            Path tmpDir = Files.createTempDirectory("f_ex_javac_");
-            tmpDir.toFile().deleteOnExit();
+            tmpDir = Files.createTempDirectory("f_ex_javac_");
 
             Path tmpFile = tmpDir.resolve(file.getFileName().toString());
             Files.writeString(tmpFile, content == null ? "" : content, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
@@ -2597,13 +2615,13 @@ public class IdeController {
                     "-d", tmpDir.toString()
             ));
 
-            if (projectModel != null && !projectModel.sourceRoots.isEmpty()) {
+            if (model != null && !model.sourceRoots.isEmpty()) {
                 cmd.add("-sourcepath");
-                cmd.add(joinPaths(projectModel.sourceRoots));
+                cmd.add(joinPaths(model.sourceRoots));
             }
-            if (projectModel != null && !projectModel.classpath.isEmpty()) {
+            if (model != null && !model.classpath.isEmpty()) {
                 cmd.add("-cp");
-                cmd.add(joinPaths(projectModel.classpath));
+                cmd.add(joinPaths(model.classpath));
             }
             cmd.add(tmpFile.toString());
 
@@ -2657,10 +2675,24 @@ public class IdeController {
                 result.add(new Problem(file, ln, kind, msg));
             }
         } catch (Exception ignored) {
+        } finally {
+            if (tmpDir != null) deleteTree(tmpDir);
         }
         return result;
     }
 
+    private static void deleteTree(Path dir) {
+        try (var walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+
     private static String joinPaths(List<Path> paths) {
         String sep = java.io.File.pathSeparator;
         StringBuilder sb = new StringBuilder();
@@ -2735,6 +2767,34 @@ public class IdeController {
         }
     }
     
+    private void openLargeFileViewer(Path abs) {
+        String fontFamily = settingsManager.get(SettingsManager.KEY_FONT_FAMILY, "Consolas");
+        int fontSize = settingsManager.getInt(SettingsManager.KEY_FONT_SIZE, 13);
+        LargeFileViewer viewer = new LargeFileViewer(abs, fontFamily, fontSize, this::updateStatus);
+        try {
+            viewer.open();
+        } catch (IOException e) {
+            viewer.close();
+            logToConsole("Failed to open file: " + e.getMessage());
+            updateStatus("Failed to open file");
+            return;
+        }
+
+        Tab tab = new Tab(abs.getFileName() != null ? abs.getFileName().toString() : abs.toString());
+        tab.setContent(wrapContent(viewer.getNode()));
+        tab.setUserData(new EditorTabData(abs, null));
+        tab.setOnClosed(evt -> {
+            openTabsByPath.remove(abs);
+            viewer.close();
+        });
+
+        editorTabs.getTabs().add(tab);
+        editorTabs.getSelectionModel().select(tab);
+        openTabsByPath.put(abs, tab);
+        logToConsole("Opened large file (read-only): " + abs);
+        recentFiles.markOpened(abs);
+    }
+
     private void updateCursorPosition(CodeArea editor) {
         if (editor == null) return;
         int line = editor.getCurrentParagraph() + 1;
@@ -2744,31 +2804,81 @@ public class IdeController {
     }
 
     private void saveTabToPath(Tab tab, Path path) {
-        EditorTabData data = (EditorTabData) tab.getUserData();
-        if (data == null) return;
-        try {
-            Files.createDirectories(Optional.ofNullable(path.getParent()).orElse(Paths.get(".")));
-            Files.writeString(path, data.editor.getText(), StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-            logToConsole("Saved: " + path);
-        } catch (IOException e) {
-            logToConsole("Failed to save file: " + e.getMessage());
+        saveTabs(Map.of(tab, path), false);
+    }
+
+    // Запись идёт в фоне одним пакетом; текст и версия снимаются здесь, в потоке FX
+    private void saveTabs(Map<Tab, Path> targets, boolean quiet) {
+        Map<Path, String> texts = new LinkedHashMap<>();
+        Map<Path, Runnable> onSaved = new HashMap<>();
+        for (Map.Entry<Tab, Path> e : targets.entrySet()) {
+            Tab tab = e.getKey();
+            EditorTabData data = (EditorTabData) tab.getUserData();
+            if (data == null || data.editor == null) continue;
+            Path path = e.getValue().normalize().toAbsolutePath();
+            long version = data.version;
+            texts.put(path, data.editor.getText());
+            onSaved.put(path, () -> {
+                data.savedVersion = Math.max(data.savedVersion, version);
+                updateTabTitle(tab);
+            });
         }
+        saveService.saveAll(texts, (path, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                logToConsole("Failed to save file: " + error.getMessage());
+                return;
+            }
+            Runnable r = onSaved.get(path);
+            if (r != null) r.run();
+            if (!quiet) logToConsole("Saved: " + path);
+        }));
+    }
+
+    private Map<Tab, Path> dirtyEditorTabs() {
+        Map<Tab, Path> dirty = new LinkedHashMap<>();
+        if (editorTabs == null) return dirty;
+        for (Tab t : editorTabs.getTabs()) {
+            if (!(t.getUserData() instanceof EditorTabData)) continue;
+            EditorTabData data = (EditorTabData) t.getUserData();
+            if (data.editor != null && data.path != null && data.isDirty()) dirty.put(t, data.path);
+        }
+        return dirty;
+    }
+
+    private void scheduleAutosave() {
+        if (!settingsManager.getBoolean(SettingsManager.KEY_AUTOSAVE, false)) return;
+        if (autosaveTimer == null) {
+            autosaveTimer = new javafx.animation.PauseTransition();
+            autosaveTimer.setOnFinished(e -> saveTabs(dirtyEditorTabs(), true));
+        }
+        autosaveTimer.setDuration(javafx.util.Duration.millis(settingsManager.getInt(SettingsManager.KEY_AUTOSAVE_DELAY, 1500)));
+        autosaveTimer.playFromStart();
+    }
+
+    private static void updateTabTitle(Tab tab) {
+        EditorTabData data = (EditorTabData) tab.getUserData();
+        if (data == null || data.path == null) return;
+        String name = data.path.getFileName() != null ? data.path.getFileName().toString() : data.path.toString();
+        tab.setText(data.isDirty() ? "*" + name : name);
     }
 
     private void applyHighlighting(CodeArea area) {
         if (area == null) return;
-        String text = area.getText();
-        // Пробуем применить также подсветку ошибок/предупреждений для открытого файла
-        Path file = null;
-        Tab tab = editorTabs != null ? editorTabs.getSelectionModel().getSelectedItem() : null;
-        if (tab != null) {
-            EditorTabData data = (EditorTabData) tab.getUserData();
-            if (data != null && data.editor == area) {
-                file = data.path;
+        StyleSpans<Collection<String>> syntax = computeHighlighting(area.getText());
+        // Подчёркивания замечаний накладывает слой вкладки
+        EditorTabData data = editorTabDataFor(area);
+        if (data != null && data.decorations != null) data.decorations.restyle(syntax);
+        else area.setStyleSpans(0, syntax);
+    }
+
+    private EditorTabData editorTabDataFor(CodeArea area) {
+        if (editorTabs == null) return null;
+        for (Tab t : editorTabs.getTabs()) {
+            if (t.getUserData() instanceof EditorTabData && ((EditorTabData) t.getUserData()).editor == area) {
+                return (EditorTabData) t.getUserData();
             }
         }
-        area.setStyleSpans(0, computeHighlightingWithProblems(text, file));
+        return null;
     }
 
     private static StyleSpans<Collection<String>> computeHighlighting(String text) {
@@ -2796,79 +2906,6 @@ public class IdeController {
         return spans.create();
     }
 
-    private StyleSpans<Collection<String>> computeHighlightingWithProblems(String text, Path file) {
-        StyleSpans<Collection<String>> syntax = computeHighlighting(text);
-        if (file == null) return syntax;
-        List<Problem> probs = problemsByFile.get(file);
-        if (probs == null || probs.isEmpty()) return syntax;
-
-        Set<Integer> errLines = new HashSet<>();
-        Set<Integer> warnLines = new HashSet<>();
-        for (Problem p : probs) {
-            if (p.line <= 0) continue;
-            if ("error".equalsIgnoreCase(p.kind)) errLines.add(p.line);
-            else if ("warning".equalsIgnoreCase(p.kind)) warnLines.add(p.line);
-        }
-        if (errLines.isEmpty() && warnLines.isEmpty()) return syntax;
-
-        StyleSpans<Collection<String>> overlay = buildLineOverlaySpans(text, errLines, warnLines);
-        return mergeStyleSpans(syntax, overlay);
-    }
-
-    private static StyleSpans<Collection<String>> buildLineOverlaySpans(String text, Set<Integer> errLines, Set<Integer> warnLines) {
-        Map<Integer, String> lineStyle = new HashMap<>();
-        for (Integer l : warnLines) lineStyle.put(l, "warnLine");
-        for (Integer l : errLines) lineStyle.put(l, "errLine");
-
-        StyleSpansBuilder<Collection<String>> spans = new StyleSpansBuilder<>();
-        int idx = 0;
-        int line = 1;
-        int lineStart = 0;
-        while (idx <= text.length()) {
-            boolean isEnd = idx == text.length();
-            char c = isEnd ? '\n' : text.charAt(idx);
-            if (c == '\n' || isEnd) {
-                int lineEnd = idx;
-                int len = Math.max(0, lineEnd - lineStart);
-                String ls = lineStyle.get(line);
-                if (len > 0) spans.add(ls == null ? Collections.emptyList() : Collections.singleton(ls), len);
-                if (!isEnd) spans.add(Collections.emptyList(), 1);
-                line++;
-                lineStart = idx + 1;
-            }
-            idx++;
-        }
-        return spans.create();
-    }
-
-    private static StyleSpans<Collection<String>> mergeStyleSpans(
-            StyleSpans<Collection<String>> a,
-            StyleSpans<Collection<String>> b
-    ) {
-        var itA = a.iterator();
-        var itB = b.iterator();
-        var sa = itA.hasNext() ? itA.next() : null;
-        var sb = itB.hasNext() ? itB.next() : null;
-        int ra = sa != null ? sa.getLength() : 0;
-        int rb = sb != null ? sb.getLength() : 0;
-
-        StyleSpansBuilder<Collection<String>> out = new StyleSpansBuilder<>();
-        while (sa != null && sb != null) {
-            int len = Math.min(ra, rb);
-            List<String> merged = new ArrayList<>(sa.getStyle());
-            for (String s : sb.getStyle()) {
-                if (!merged.contains(s)) merged.add(s);
-            }
-            out.add(merged, len);
-
-            ra -= len;
-            rb -= len;
-            if (ra == 0) { sa = itA.hasNext() ? itA.next() : null; ra = sa != null ? sa.getLength() : 0; }
-            if (rb == 0) { sb = itB.hasNext() ? itB.next() : null; rb = sb != null ? sb.getLength() : 0; }
-        }
-        return out.create();
-    }
-
     private void scheduleAutoComplete(CodeArea area) {
         if (autoCompleteTimer != null) {
             autoCompleteTimer.stop();
@@ -2918,7 +2955,12 @@ public class IdeController {
         
         // Элементы из индекса проекта
         if (codeIndexer != null && !prefix.isEmpty()) {
-            List<CodeIndexer.CodeElement> indexed = codeIndexer.findCompletions(prefix);
+            // В многомодульном проекте предлагаем только то, что видно из модуля файла
+            EditorTabData tabData = editorTabDataFor(area);
+            ProjectModelResolver.ProjectModel model = projectModel;
+            List<CodeIndexer.CodeElement> indexed = tabData != null && tabData.path != null && model.modules.size() > 1
+                    ? codeIndexer.findCompletions(prefix, model.scopeFor(tabData.path).sourceRoots)
+                    : codeIndexer.findCompletions(prefix);
             for (CodeIndexer.CodeElement elem : indexed) {
                 suggestions.add(new CompletionItem(
                     elem.getDisplayName(), 
@@ -3069,6 +3111,19 @@ public class IdeController {
         projectTree.getRoot().setExpanded(true);
     }
 
+    /**
+     * Задача подпроекта, которому принадлежит открытый файл (":app:run"), чтобы не
+     * запускать одноимённые задачи во всех подпроектах сразу.
+     */
+    private String gradleTaskForCurrentModule(String task) {
+        Tab tab = editorTabs.getSelectionModel().getSelectedItem();
+        EditorTabData data = tab != null ? (EditorTabData) tab.getUserData() : null;
+        if (data == null || data.path == null || projectModel.modules.size() <= 1) return task;
+        ProjectModelResolver.Module module = projectModel.moduleOf(data.path);
+        if (module == null || !module.name.startsWith(":") || module.name.equals(":")) return task;
+        return module.name + ":" + task;
+    }
+
     private void runGradle(String task) {
         if (projectRoot == null) {
             // default to current project folder (where gradlew is)
@@ -3081,23 +3136,49 @@ public class IdeController {
         if (projectDir == null) return;
         Path root = projectDir.normalize().toAbsolutePath();
 
-        Path gradlewBat = root.resolve("gradlew.bat");
-        Path gradlew = root.resolve("gradlew");
-        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-
         // Если в корне нет gradlew, ищем в подпапках
-        if (!Files.exists(gradlewBat) && !Files.exists(gradlew)) {
+        if (!GradleConnections.hasWrapper(root)) {
             Path found = ProjectDetector.findGradleProject(root);
             if (found != null) {
                 root = found;
-                gradlewBat = root.resolve("gradlew.bat");
-                gradlew = root.resolve("gradlew");
                 logToConsole("Found Gradle project in: " + root);
             }
         }
 
         final Path finalRoot = root; // для использования в лямбде
 
+        // Подключение к демону переиспользуется между запусками; gradlew - запасной путь
+        if (GradleConnections.hasWrapper(root)) {
+            logToConsole("$ gradle " + task + " (Tooling API)");
+            updateStatus("Running: " + task);
+            Thread t = new Thread(() -> {
+                try {
+                    // Строки сборки идут через общую очередь консоли, а не по runLater на строку
+                    Consumer<String> console = processes.console();
+                    boolean ok = gradleConnections.run(finalRoot, List.of(task), console,
+                            taskPath -> Platform.runLater(() -> updateStatus("Running: " + taskPath)));
+                    console.accept(ok ? "BUILD SUCCESSFUL" : "BUILD FAILED");
+                    Platform.runLater(() -> updateStatus(ok ? "Done: " + task : "Failed: " + task));
+                } catch (GradleConnections.UnavailableException e) {
+                    Platform.runLater(() -> {
+                        logToConsole(e.getMessage() + ", falling back to gradlew");
+                        runGradleWrapper(finalRoot, task);
+                    });
+                }
+            }, "gradle-runner");
+            t.setDaemon(true);
+            t.start();
+            return;
+        }
+        runGradleWrapper(root, task);
+    }
+
+    private void runGradleWrapper(Path root, String task) {
+        Path gradlewBat = root.resolve("gradlew.bat");
+        Path gradlew = root.resolve("gradlew");
+        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
+        final Path finalRoot = root;
+
         List<String> command = new ArrayList<>();
         if (isWindows && Files.exists(gradlewBat)) {
             command.addAll(List.of("cmd.exe", "/c", gradlewBat.toString(), task));
@@ -3112,34 +3193,15 @@ public class IdeController {
         logToConsole("$ " + String.join(" ", command));
         updateStatus("Running: " + task);
 
-        Thread t = new Thread(() -> {
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.directory(finalRoot.toFile());
-            pb.redirectErrorStream(true);
-            try {
-                Process p = pb.start();
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String finalLine = line;
-                        Platform.runLater(() -> logToConsole(finalLine));
-                    }
-                }
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    logToConsole("Process finished with exit code: " + code);
-                    updateStatus(code == 0 ? "Done: " + task : "Failed: " + task + " (exit " + code + ")");
-                });
-            } catch (Exception ex) {
-                Platform.runLater(() -> {
-                    logToConsole("Failed to run gradle: " + ex.getMessage());
-                    updateStatus("Failed: " + task);
-                });
-            }
-        }, "gradle-runner");
-        t.setDaemon(true);
-        t.start();
+        try {
+            processes.start("gradle-runner", command, finalRoot, code -> {
+                logToConsole("Process finished with exit code: " + code);
+                updateStatus(code == 0 ? "Done: " + task : "Failed: " + task + " (exit " + code + ")");
+            });
+        } catch (IOException ex) {
+            logToConsole("Failed to run gradle: " + ex.getMessage());
+            updateStatus("Failed: " + task);
+        }
     }
 
     private void createGradleJavaProject(Path parentDir, NewProjectConfig cfg) {
@@ -3198,47 +3260,26 @@ public class IdeController {
         logToConsole("$ " + String.join(" ", cmd));
         updateStatus("Creating project...");
 
-        Thread t = new Thread(() -> {
-            ProcessBuilder pb = new ProcessBuilder(cmd);
-            pb.directory(ideRoot.toFile());
-            pb.redirectErrorStream(true);
-
-            try {
-                Process p = pb.start();
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String finalLine = line;
-                        Platform.runLater(() -> logToConsole(finalLine));
+        try {
+            processes.start("project-creator", cmd, ideRoot, code -> {
+                logToConsole("Create project finished with exit code: " + code);
+                if (code == 0) {
+                    // Fix: gradle init (8.13) may default toolchain to Java 21.
+                    // We patch generated build to Java 17 to match user's JDK and avoid toolchain download timeouts.
+                    patchGeneratedProjectToJava17(targetDir);
+
+                    updateStatus("Project created: " + cfg.projectName);
+                    if (cfg.openAfterCreate) {
+                        setProjectRoot(targetDir);
                     }
+                } else {
+                    updateStatus("Create failed (exit " + code + ")");
                 }
-
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    logToConsole("Create project finished with exit code: " + code);
-                    if (code == 0) {
-                        // Fix: gradle init (8.13) may default toolchain to Java 21.
-                        // We patch generated build to Java 17 to match user's JDK and avoid toolchain download timeouts.
-                        patchGeneratedProjectToJava17(targetDir);
-
-                        updateStatus("Project created: " + cfg.projectName);
-                        if (cfg.openAfterCreate) {
-                            setProjectRoot(targetDir);
-                        }
-                    } else {
-                        updateStatus("Create failed (exit " + code + ")");
-                    }
-                });
-            } catch (Exception ex) {
-                Platform.runLater(() -> {
-                    logToConsole("Failed to create project: " + ex.getMessage());
-                    updateStatus("Create failed");
-                });
-            }
-        }, "project-creator");
-        t.setDaemon(true);
-        t.start();
+            });
+        } catch (IOException ex) {
+            logToConsole("Failed to create project: " + ex.getMessage());
+            updateStatus("Create failed");
+        }
     }
 
     private void patchGeneratedProjectToJava17(Path projectDir) {
@@ -3285,11 +3326,19 @@ public class IdeController {
     }
 
     private void logToConsole(String text) {
-        if (consoleArea == null) return;
-        if (!Objects.equals(consoleArea.getText(), "") && !consoleArea.getText().endsWith("\n")) {
-            consoleArea.appendText("\n");
+        if (consoleView == null) return;
+        // Буфер консоли и её ListView меняются только в FX-потоке
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> logToConsole(text));
+            return;
         }
-        consoleArea.appendText(text + "\n");
+        consoleView.append(text);
+    }
+
+    /** Пачка строк от ProcessService - одним изменением консоли. */
+    private void logLinesToConsole(List<String> lines) {
+        if (consoleView == null) return;
+        consoleView.appendLines(lines);
     }
 
     private Stage getStage() {
@@ -3300,10 +3349,24 @@ public class IdeController {
     private static final class EditorTabData {
         private Path path;
         private final CodeArea editor;
+        private final DocumentChangeBus changeBus;
+        private final ProblemDecorations decorations;
+        private long version;
+        private long savedVersion;
 
         private EditorTabData(Path path, CodeArea editor) {
+            this(path, editor, null, null);
+        }
+
+        private EditorTabData(Path path, CodeArea editor, DocumentChangeBus changeBus, ProblemDecorations decorations) {
             this.path = path;
             this.editor = editor;
+            this.changeBus = changeBus;
+            this.decorations = decorations;
+        }
+
+        private boolean isDirty() {
+            return version != savedVersion;
         }
     }
 
@@ -3357,6 +3420,14 @@ public class IdeController {
         MAIN_CLASS
     }
     
+    /** Вызывается при закрытии приложения. */
+    void shutdown() {
+        stopFileWatcher();
+        runSessions.shutdown();
+        processes.cancelAll();
+        gradleConnections.closeAll();
+    }
+
     private void startFileWatcher() {
         stopFileWatcher();
         if (projectRoot == null) return;
@@ -3387,6 +3458,20 @@ public class IdeController {
                                 kind == StandardWatchEventKinds.ENTRY_DELETE ||
                                 kind == StandardWatchEventKinds.ENTRY_MODIFY) {
                                 shouldRefresh = true;
+                                if (fullPath.toString().endsWith(".java")) {
+                                    diagnosticsCache.sourceChanged(fullPath);
+                                    diagnosticsEngine.sourceChanged(fullPath);
+                                    backgroundAnalyzer.fileChanged(fullPath);
+                                }
+                                // MODIFY у каталога - это смена атрибутов, переиндексировать нечего
+                                CodeIndexer indexer = codeIndexer;
+                                boolean dirModified = kind == StandardWatchEventKinds.ENTRY_MODIFY && Files.isDirectory(fullPath);
+                                if (indexer != null && !dirModified && indexer.fileChanged(fullPath)) {
+                                    Platform.runLater(this::refreshRunTargets);
+                                }
+                                if (ProjectModelCache.isBuildFile(fullPath)) {
+                                    Platform.runLater(this::scheduleModelRefresh);
+                                }
                                 
                                 if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(fullPath)) {
                                     registerDirectory(fullPath);
@@ -3453,6 +3538,78 @@ public class IdeController {
         }
     }
     
+    // Файлы сборки часто сохраняются пачкой (IDE, git checkout) - ждём тишины
+    private void scheduleModelRefresh() {
+        if (modelRefreshTimer == null) {
+            modelRefreshTimer = new javafx.animation.PauseTransition(javafx.util.Duration.millis(1000));
+            modelRefreshTimer.setOnFinished(e -> {
+                if (projectRoot != null && projectType != null) loadProjectModel(projectRoot, projectType);
+            });
+        }
+        modelRefreshTimer.stop();
+        modelRefreshTimer.play();
+    }
+
+    /**
+     * Сразу применяет сохранённую модель проекта и разрешает её заново через Gradle/Maven,
+     * только если изменились файлы сборки.
+     */
+    private void loadProjectModel(Path root, ProjectDetector.ProjectType type) {
+        Thread pm = new Thread(() -> {
+            if (!ProjectModelCache.isCached(type)) {
+                applyProjectModel(root, modelResolver.resolve(root, type), "");
+                return;
+            }
+            String stamp;
+            try {
+                stamp = modelCache.stamp(root, type);
+            } catch (IOException e) {
+                stamp = null;
+            }
+            ProjectModelCache.Entry cached = stamp != null ? modelCache.load(root, type, stamp) : null;
+            if (cached != null) {
+                applyProjectModel(root, cached.model, cached.fresh ? " (cached)" : " (cached, refreshing...)");
+                if (cached.fresh) return;
+            }
+            long start = System.nanoTime();
+            ProjectModelResolver.ProjectModel m = modelResolver.resolve(root, type);
+            String took = " (resolved in " + (System.nanoTime() - start) / 1_000_000 + " ms)";
+            if (!m.complete) {
+                // Неполная модель не кэшируется: следующее открытие разрешит проект заново
+                Platform.runLater(() -> logToConsole("Project model is incomplete (build tool failed or dependencies are missing)"
+                        + (cached != null ? ", keeping cached model" : "")));
+                if (cached == null) applyProjectModel(root, m, took);
+                return;
+            }
+            if (stamp != null) {
+                try {
+                    modelCache.store(root, type, stamp, m);
+                } catch (IOException e) {
+                    Platform.runLater(() -> logToConsole("Failed to cache project model: " + e.getMessage()));
+                }
+            }
+            if (cached == null || !m.fingerprint().equals(cached.model.fingerprint())) applyProjectModel(root, m, took);
+        }, "project-model");
+        pm.setDaemon(true);
+        pm.start();
+    }
+
+    private void applyProjectModel(Path root, ProjectModelResolver.ProjectModel m, String origin) {
+        if (!root.equals(projectRoot)) return;
+        boolean changed = !m.fingerprint().equals(projectModel.fingerprint());
+        projectModel = m;
+        if (changed) {
+            diagnosticsEngine.projectModelChanged(m);
+            backgroundAnalyzer.reset(m.sourceRoots);
+        }
+        Platform.runLater(() -> {
+            logToConsole("Project model: srcRoots=" + m.sourceRoots.size() + ", cp=" + m.classpath.size() + origin);
+            if (!changed) return;
+            // Открытые файлы проверялись с прежним classpath
+            for (Path open : new ArrayList<>(openTabsByPath.keySet())) refreshDiagnosticsForOpenTabIfAny(open);
+        });
+    }
+
     private void scheduleTreeRefresh() {
         if (treeRefreshTimer == null) {
             treeRefreshTimer = new javafx.animation.PauseTransition(javafx.util.Duration.millis(300));
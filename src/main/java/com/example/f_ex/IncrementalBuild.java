@@ -0,0 +1,249 @@
+package com.example.f_ex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Инкрементальная сборка для запуска без системы сборки. В build/classes хранится
+ * состояние последней успешной сборки: хэш каждого исходника, объявленные в нём типы
+ * верхнего уровня и файлы, которые от него зависят (по {@link DependencyGraph}).
+ * Перекомпилируются только изменённые файлы и всё, что от них зависит прямо или
+ * через другие файлы; если ничего не менялось, javac не запускается вовсе.
+ */
+final class IncrementalBuild {
+    private static final String STATE_FILE = ".f_ex-build-state";
+
+    static final class Plan {
+        final List<Path> toCompile;
+        final int total;
+        final boolean full;
+        private final Map<String, Entry> entries;
+        private final String options;
+
+        private Plan(List<Path> toCompile, int total, boolean full, Map<String, Entry> entries, String options) {
+            this.toCompile = toCompile;
+            this.total = total;
+            this.full = full;
+            this.entries = entries;
+            this.options = options;
+        }
+
+        boolean upToDate() {
+            return toCompile.isEmpty();
+        }
+    }
+
+    private static final class Entry {
+        private final String hash;
+        private final Set<String> types;
+        private final Set<String> dependents;
+
+        private Entry(String hash, Set<String> types, Set<String> dependents) {
+            this.hash = hash;
+            this.types = types;
+            this.dependents = dependents;
+        }
+    }
+
+    private final Path sourceRoot;
+    private final Path classesDir;
+
+    IncrementalBuild(Path sourceRoot, Path classesDir) {
+        this.sourceRoot = sourceRoot;
+        this.classesDir = classesDir;
+    }
+
+    /**
+     * Обход sourceRoot и {@link #plan} в фоновом потоке: чтение и хэширование всех
+     * исходников не должно держать FX-поток. onReady и сообщения об ошибках - в FX-потоке.
+     */
+    void planInBackground(String options, Consumer<String> log, Consumer<Plan> onReady) {
+        Thread t = new Thread(() -> {
+            try {
+                List<Path> sources;
+                try (Stream<Path> s = Files.walk(sourceRoot, 10)) {
+                    sources = s.filter(Files::isRegularFile)
+                            .filter(p -> p.toString().endsWith(".java"))
+                            .toList();
+                }
+                if (sources.isEmpty()) {
+                    Platform.runLater(() -> log.accept("No Java files found in: " + sourceRoot));
+                    return;
+                }
+                Plan plan = plan(sources, options);
+                Platform.runLater(() -> onReady.accept(plan));
+            } catch (IOException | UncheckedIOException e) {
+                Platform.runLater(() -> log.accept("Failed to read sources: " + e.getMessage()));
+            }
+        }, "incremental-build-plan");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Сравнивает исходники с сохранённым состоянием и удаляет классы изменённых
+     * и удалённых файлов (их типы могли исчезнуть или переименоваться).
+     *
+     * @param options командная строка javac без списка файлов; при её смене собирается всё
+     */
+    Plan plan(List<Path> sources, String options) throws IOException {
+        Map<String, Entry> previous = new HashMap<>();
+        boolean full = !readState(previous, options);
+
+        DependencyGraph graph = new DependencyGraph();
+        Map<String, Path> files = new LinkedHashMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        Map<String, Set<String>> types = new HashMap<>();
+        for (Path p : sources) {
+            String content = Files.readString(p, StandardCharsets.UTF_8);
+            String rel = relative(p);
+            files.put(rel, p);
+            hashes.put(rel, sha256(content));
+            types.put(rel, DependencyGraph.topLevelTypes(content));
+            graph.update(p, content);
+        }
+
+        Map<Path, Set<Path>> dependentsByFile = graph.allDependents();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> e : files.entrySet()) {
+            Set<String> dependents = new LinkedHashSet<>();
+            for (Path d : dependentsByFile.getOrDefault(e.getValue(), Set.of())) dependents.add(relative(d));
+            entries.put(e.getKey(), new Entry(hashes.get(e.getKey()), types.get(e.getKey()), dependents));
+        }
+
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry old = previous.get(e.getKey());
+            if (full || old == null || !old.hash.equals(e.getValue().hash) || !outputsExist(old.types)) {
+                changed.add(e.getKey());
+            }
+        }
+        Set<String> removed = new LinkedHashSet<>(previous.keySet());
+        removed.removeAll(entries.keySet());
+
+        // Замыкание по зависимым: изменение типа может сломать файл и через промежуточный
+        // (наследник, выведенный тип, константа). Новые пользователи типа известны
+        // по текущему графу, прежние - по сохранённому
+        Set<String> compile = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>(changed);
+        for (String rel : removed) queue.addAll(previous.get(rel).dependents);
+        while (!queue.isEmpty()) {
+            String rel = queue.poll();
+            if (!compile.add(rel)) continue;
+            Entry now = entries.get(rel);
+            if (now != null) queue.addAll(now.dependents);
+            Entry old = previous.get(rel);
+            if (old != null) queue.addAll(old.dependents);
+        }
+        compile.retainAll(entries.keySet());
+
+        for (String rel : changed) {
+            Entry old = previous.get(rel);
+            if (old != null) deleteOutputs(old.types);
+        }
+        for (String rel : removed) deleteOutputs(previous.get(rel).types);
+
+        List<Path> toCompile = new ArrayList<>();
+        for (String rel : compile) toCompile.add(files.get(rel));
+        if (toCompile.isEmpty() && !removed.isEmpty()) writeState(entries, options);
+        return new Plan(toCompile, files.size(), full, entries, options);
+    }
+
+    /** Вызывать после успешной компиляции плана. */
+    void commit(Plan plan) throws IOException {
+        writeState(plan.entries, plan.options);
+    }
+
+    private boolean readState(Map<String, Entry> out, String options) throws IOException {
+        Path state = classesDir.resolve(STATE_FILE);
+        if (!Files.exists(state)) return false;
+        List<String> lines = Files.readAllLines(state, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals("options\t" + sha256(options))) return false;
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split("\t", -1);
+            if (parts.length != 4) return false;
+            out.put(parts[0], new Entry(parts[1], split(parts[2]), split(parts[3])));
+        }
+        return true;
+    }
+
+    private void writeState(Map<String, Entry> entries, String options) throws IOException {
+        StringBuilder sb = new StringBuilder("options\t").append(sha256(options)).append('\n');
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry v = e.getValue();
+            sb.append(e.getKey()).append('\t').append(v.hash).append('\t')
+                    .append(String.join(",", v.types)).append('\t')
+                    .append(String.join(",", v.dependents)).append('\n');
+        }
+        Files.createDirectories(classesDir);
+        Path tmp = classesDir.resolve(STATE_FILE + ".tmp");
+        Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, classesDir.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private boolean outputsExist(Set<String> types) {
+        for (String type : types) {
+            if (!Files.exists(classFile(type))) return false;
+        }
+        return true;
+    }
+
+    // Класс верхнего уровня вместе с вложенными и анонимными (Foo$*.class)
+    private void deleteOutputs(Set<String> types) throws IOException {
+        for (String type : types) {
+            Path main = classFile(type);
+            Files.deleteIfExists(main);
+            Path dir = main.getParent();
+            if (dir == null || !Files.isDirectory(dir)) continue;
+            String prefix = type.substring(type.lastIndexOf('.') + 1) + "$";
+            try (Stream<Path> s = Files.list(dir)) {
+                for (Path p : s.toList()) {
+                    String name = p.getFileName().toString();
+                    if (name.startsWith(prefix) && name.endsWith(".class")) Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    private Path classFile(String type) {
+        return classesDir.resolve(type.replace('.', File.separatorChar) + ".class");
+    }
+
+    private String relative(Path p) {
+        return sourceRoot.relativize(p).toString().replace(File.separatorChar, '/');
+    }
+
+    private static Set<String> split(String s) {
+        return s.isEmpty() ? new LinkedHashSet<>() : new LinkedHashSet<>(Arrays.asList(s.split(",")));
+    }
+
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.f_ex;
 
-import javafx.application.Platform;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
@@ -13,17 +12,29 @@ import java.util.regex.Matcher;
 
 public class IntelliJProjectRunner {
     private final Consumer<String> logCallback;
-    private final Runnable statusUpdate;
-    private final java.util.function.Consumer<Process> processCallback;
+    private final SourceBuild sourceBuild;
+    private final CodeIndexer codeIndexer;
     
     public IntelliJProjectRunner(Consumer<String> logCallback, Runnable statusUpdate) {
         this(logCallback, statusUpdate, null);
     }
     
     public IntelliJProjectRunner(Consumer<String> logCallback, Runnable statusUpdate, java.util.function.Consumer<Process> processCallback) {
+        this(logCallback, statusUpdate, processCallback, null, null, null, null);
+    }
+    
+    /**
+     * codeIndexer - готовый индекс проекта: main и JavaFX берутся из него, а не сканированием;
+     * processes - общий сервис процессов IDE (null - свой, с выводом в logCallback);
+     * sessions - запущенная программа получает свою сессию с консолью (null - вывод в logCallback).
+     */
+    IntelliJProjectRunner(Consumer<String> logCallback, Runnable statusUpdate, java.util.function.Consumer<Process> processCallback,
+       Consumer<Map<Path, List<Problem>>> problemsCallback, CodeIndexer codeIndexer, ProcessService processes,
+       RunSessionManager sessions) {
         this.logCallback = logCallback;
-        this.statusUpdate = statusUpdate;
-        this.processCallback = processCallback;
+        this.codeIndexer = codeIndexer;
+        this.sourceBuild = new SourceBuild("intellij-project-runner", logCallback, statusUpdate, processCallback, problemsCallback,
+                processes, sessions);
     }
     
     public void run(Path projectRoot) {
@@ -131,7 +142,8 @@ public class IntelliJProjectRunner {
         return libs;
     }
     
-    private static boolean checkUsesJavaFX(Path projectRoot, Path sourceRoot) {
+    private boolean checkUsesJavaFX(Path projectRoot, Path sourceRoot) {
+        if (codeIndexer != null && codeIndexer.isReady()) return codeIndexer.usesJavaFX(sourceRoot);
         try {
             return Files.walk(sourceRoot, 10)
                     .filter(Files::isRegularFile)
@@ -150,7 +162,11 @@ public class IntelliJProjectRunner {
         }
     }
     
-    private static Path findMainClassAnywhere(Path root) {
+    private Path findMainClassAnywhere(Path root) {
+        if (codeIndexer != null && codeIndexer.isReady()) {
+            List<Path> mains = codeIndexer.mainClasses(root);
+            return mains.isEmpty() ? null : mains.get(0);
+        }
         try {
             return Files.walk(root, 10)
                     .filter(Files::isRegularFile)
@@ -206,25 +222,8 @@ public class IntelliJProjectRunner {
                 .replace(".java", "");
         
         boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-        String javacCmd = isWindows ? "javac.exe" : "javac";
         String javaCmd = isWindows ? "java.exe" : "java";
         
-        List<Path> javaFiles = new ArrayList<>();
-        try {
-            Files.walk(sourceRoot, 10)
-                    .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .forEach(javaFiles::add);
-        } catch (IOException e) {
-            logCallback.accept("Failed to find Java files: " + e.getMessage());
-            return;
-        }
-        
-        if (javaFiles.isEmpty()) {
-            logCallback.accept("No Java files found in: " + sourceRoot);
-            return;
-        }
-        
         // Формируем classpath из библиотек
         List<String> classpath = new ArrayList<>();
         classpath.add(classesDir.toString());
@@ -233,38 +232,24 @@ public class IntelliJProjectRunner {
         }
         String classpathStr = String.join(File.pathSeparator, classpath);
         
-        List<String> compileCmd = new ArrayList<>();
-        compileCmd.add(javacCmd);
-        compileCmd.add("-encoding");
-        compileCmd.add("UTF-8");
-        compileCmd.add("-d");
-        compileCmd.add(classesDir.toString());
-        compileCmd.add("-sourcepath");
-        compileCmd.add(sourceRoot.toString());
-        compileCmd.add("-cp");
-        compileCmd.add(classpathStr);
-        
+        List<String> fxOptions = new ArrayList<>();
         // Если использует JavaFX, добавляем модули
         if (usesJavaFX) {
             String javafxPath = findJavaFXPath();
             if (javafxPath != null) {
-                compileCmd.add("--module-path");
-                compileCmd.add(javafxPath);
-                compileCmd.add("--add-modules");
-                compileCmd.add("javafx.controls,javafx.fxml");
+                fxOptions.add("--module-path");
+                fxOptions.add(javafxPath);
+                fxOptions.add("--add-modules");
+                fxOptions.add("javafx.controls,javafx.fxml");
             } else {
                 logCallback.accept("Warning: JavaFX detected but not found in system.");
                 logCallback.accept("Trying to find JavaFX in libraries...");
             }
         }
         
-        javaFiles.forEach(p -> compileCmd.add(p.toString()));
-        
         logCallback.accept("Found " + libraries.size() + " libraries from IntelliJ IDEA configuration");
-        logCallback.accept("$ " + String.join(" ", compileCmd));
-        statusUpdate.run();
         
-        runCommand(compileCmd, projectRoot, () -> {
+        Runnable launch = () -> {
             List<String> runCmd = new ArrayList<>();
             runCmd.add(javaCmd);
             
@@ -296,8 +281,10 @@ public class IntelliJProjectRunner {
             if (debug) {
                 logCallback.accept("[DEBUG] Waiting for debugger on port 5005 (suspend=y)");
             }
-            runCommand(runCmd, projectRoot, null, processCallback);
-        });
+            String simpleName = className.substring(className.lastIndexOf('.') + 1);
+            sourceBuild.runProgram(runCmd, projectRoot, debug ? simpleName + " (debug)" : simpleName);
+        };
+        sourceBuild.build(projectRoot, sourceRoot, classesDir, classpathStr, fxOptions, launch);
     }
     
     private static String findJavaFXPath() {
@@ -331,62 +318,4 @@ public class IntelliJProjectRunner {
         
         return null;
     }
-    
-    private void runCommand(List<String> command, Path directory, Runnable onSuccess) {
-        runCommand(command, directory, onSuccess, null);
-    }
-    
-    private void runCommand(List<String> command, Path directory, Runnable onSuccess, java.util.function.Consumer<Process> processCallback) {
-        Thread t = new Thread(() -> {
-            try {
-                ProcessBuilder pb = new ProcessBuilder(command);
-                pb.directory(directory.toFile());
-                pb.redirectErrorStream(true);
-                
-                // Устанавливаем UTF-8 кодировку для процесса (Windows)
-                Map<String, String> env = pb.environment();
-                env.put("JAVA_TOOL_OPTIONS", "-Dfile.encoding=UTF-8 -Dconsole.encoding=UTF-8");
-                if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                    env.put("PYTHONIOENCODING", "utf-8");
-                }
-                
-                Process p = pb.start();
-                
-                // Сохраняем процесс для интерактивного ввода
-                if (processCallback != null) {
-                    Platform.runLater(() -> processCallback.accept(p));
-                }
-                
-                // Читаем вывод в UTF-8
-                try (var reader = new BufferedReader(
-                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String finalLine = line;
-                        Platform.runLater(() -> logCallback.accept(finalLine));
-                    }
-                }
-                
-                int code = p.waitFor();
-                Platform.runLater(() -> {
-                    logCallback.accept("Process finished with exit code: " + code);
-                    if (code == 0 && onSuccess != null) {
-                        onSuccess.run();
-                    }
-                    if (processCallback != null) {
-                        processCallback.accept(null); // Очищаем процесс
-                    }
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    logCallback.accept("Failed: " + e.getMessage());
-                    if (processCallback != null) {
-                        processCallback.accept(null); // Очищаем процесс
-                    }
-                });
-            }
-        }, "intellij-project-runner");
-        t.setDaemon(true);
-        t.start();
-    }
 }
@@ -0,0 +1,376 @@
+package com.example.f_ex;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Просмотр больших файлов только для чтения.
+ * Файл отображается в память, индекс начал строк строится в фоне,
+ * а на экран выводятся только видимые строки (виртуализированный ListView).
+ */
+final class LargeFileViewer {
+    static final long THRESHOLD_BYTES = 8L * 1024 * 1024;
+
+    private static final long SEGMENT_SIZE = 1L << 30; // одно отображение не может быть больше 2 ГБ
+    private static final int MAX_LINE_CHARS = 10_000;
+    private static final int PUBLISH_EVERY_LINES = 64 * 1024;
+
+    private final Path file;
+    private final Consumer<String> status;
+    private final BorderPane root = new BorderPane();
+    private final LineList lineList = new LineList();
+    private final ListView<Integer> listView = new ListView<>(lineList);
+    private final TextField searchField = new TextField();
+    private final CheckBox followBox = new CheckBox("Follow");
+    private final Label infoLabel = new Label();
+    private final Timeline followTimer;
+
+    private FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long mappedSize;
+
+    // Индекс строк: публикуется фоновым потоком, читается FX-потоком.
+    private volatile long[] lineStarts = new long[1024];
+    private volatile int lineCount;
+    private volatile long indexedEnd;
+    private volatile boolean closed;
+    private Thread indexThread;
+    private Thread searchThread;
+
+    LargeFileViewer(Path file, String fontFamily, int fontSize, Consumer<String> status) {
+        this.file = file;
+        this.status = status;
+
+        listView.setStyle(String.format("-fx-font-family: '%s'; -fx-font-size: %dpx;", fontFamily, fontSize));
+        listView.setFixedCellSize(fontSize + 6);
+        listView.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else {
+                    setText((item + 1) + "  " + readLine(item));
+                }
+            }
+        });
+
+        searchField.setPromptText("Search in file...");
+        searchField.setOnAction(e -> findNext());
+        Button findButton = new Button("Find next");
+        findButton.setOnAction(e -> findNext());
+        followBox.setOnAction(e -> {
+            if (followBox.isSelected()) {
+                followTimer.play();
+                scrollToEnd();
+            } else {
+                followTimer.stop();
+            }
+        });
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+        HBox bar = new HBox(8, new Label("Read-only"), searchField, findButton, followBox, infoLabel);
+        bar.setPadding(new Insets(4, 8, 4, 8));
+
+        root.setTop(bar);
+        root.setCenter(listView);
+
+        followTimer = new Timeline(new KeyFrame(Duration.seconds(1), e -> checkForGrowth()));
+        followTimer.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    Node getNode() {
+        return root;
+    }
+
+    void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        remap(channel.size());
+        lineStarts[0] = 0;
+        lineCount = 1;
+        lineList.publish(1);
+        startIndexing();
+    }
+
+    void close() {
+        closed = true;
+        followTimer.stop();
+        if (indexThread != null) indexThread.interrupt();
+        if (searchThread != null) searchThread.interrupt();
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException ignored) {
+        }
+        segments.clear();
+    }
+
+    private void remap(long size) throws IOException {
+        // Последний (неполный) сегмент переотображаем целиком, остальные остаются как есть
+        if (!segments.isEmpty()) {
+            long lastBase = (long) (segments.size() - 1) * SEGMENT_SIZE;
+            if (mappedSize - lastBase < SEGMENT_SIZE) {
+                segments.remove(segments.size() - 1);
+            }
+        }
+        long base = (long) segments.size() * SEGMENT_SIZE;
+        while (base < size) {
+            long len = Math.min(SEGMENT_SIZE, size - base);
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, base, len));
+            base += len;
+        }
+        mappedSize = size;
+    }
+
+    private void startIndexing() {
+        long from = indexedEnd;
+        long to = mappedSize;
+        List<MappedByteBuffer> snapshot = new ArrayList<>(segments);
+        indexThread = new Thread(() -> indexRange(snapshot, from, to), "large-file-indexer");
+        indexThread.setDaemon(true);
+        indexThread.start();
+    }
+
+    private void indexRange(List<MappedByteBuffer> segs, long from, long to) {
+        long[] starts = lineStarts;
+        int count = lineCount;
+        long startedAt = System.currentTimeMillis();
+        int sinceLastPublish = 0;
+        long pos = from;
+        while (pos < to && !closed) {
+            int seg = (int) (pos / SEGMENT_SIZE);
+            MappedByteBuffer buf = segs.get(seg);
+            long segBase = (long) seg * SEGMENT_SIZE;
+            int limit = (int) Math.min(buf.limit(), to - segBase);
+            for (int i = (int) (pos - segBase); i < limit; i++) {
+                if (buf.get(i) != '\n') continue;
+                if (count == starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+                starts[count++] = segBase + i + 1;
+                if (++sinceLastPublish >= PUBLISH_EVERY_LINES) {
+                    sinceLastPublish = 0;
+                    publish(starts, count, segBase + i + 1);
+                    if (Thread.currentThread().isInterrupted()) return;
+                }
+            }
+            pos = segBase + limit;
+        }
+        publish(starts, count, to);
+        long took = System.currentTimeMillis() - startedAt;
+        int total = count;
+        Platform.runLater(() -> {
+            updateInfo();
+            if (from == 0) status.accept("Indexed " + total + " lines in " + took + " ms: " + file.getFileName());
+            if (followBox.isSelected()) scrollToEnd();
+        });
+    }
+
+    private void publish(long[] starts, int count, long scannedTo) {
+        // Сначала массив, затем счётчик: читатель, увидевший count, увидит и массив
+        lineStarts = starts;
+        indexedEnd = scannedTo;
+        lineCount = count;
+        Platform.runLater(() -> {
+            lineList.publish(lineCount);
+            updateInfo();
+        });
+    }
+
+    private void updateInfo() {
+        String progress = indexedEnd >= mappedSize ? "" : String.format(" (indexing %d%%)", mappedSize == 0 ? 100 : indexedEnd * 100 / mappedSize);
+        infoLabel.setText(lineCount + " lines, " + (mappedSize / 1024) + " KB" + progress);
+    }
+
+    private String readLine(int line) {
+        int count = lineCount;
+        long[] starts = lineStarts;
+        if (line < 0 || line >= count || segments.isEmpty()) return "";
+        long start = starts[line];
+        long end = line + 1 < count ? starts[line + 1] : indexedEnd;
+        if (line + 1 >= count && indexedEnd >= mappedSize) end = mappedSize;
+        if (end > start && byteAt(end - 1) == '\n') end--;
+        if (end > start && byteAt(end - 1) == '\r') end--;
+        long len = Math.max(0, end - start);
+        boolean truncated = len > MAX_LINE_CHARS;
+        byte[] bytes = new byte[(int) Math.min(len, MAX_LINE_CHARS)];
+        copyBytes(start, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return truncated ? text + " …" : text;
+    }
+
+    private byte byteAt(long pos) {
+        return byteAt(segments, pos);
+    }
+
+    private static byte byteAt(List<MappedByteBuffer> segs, long pos) {
+        return segs.get((int) (pos / SEGMENT_SIZE)).get((int) (pos % SEGMENT_SIZE));
+    }
+
+    private void copyBytes(long pos, byte[] dst) {
+        int off = 0;
+        while (off < dst.length) {
+            int seg = (int) (pos / SEGMENT_SIZE);
+            int inSeg = (int) (pos % SEGMENT_SIZE);
+            MappedByteBuffer buf = segments.get(seg);
+            int n = Math.min(dst.length - off, buf.limit() - inSeg);
+            if (n <= 0) break;
+            buf.get(inSeg, dst, off, n);
+            off += n;
+            pos += n;
+        }
+    }
+
+    private int lineOfOffset(long offset) {
+        int count = lineCount;
+        int idx = Arrays.binarySearch(lineStarts, 0, count, offset);
+        return idx >= 0 ? idx : Math.max(0, -idx - 2);
+    }
+
+    private void findNext() {
+        String query = searchField.getText();
+        if (query == null || query.isEmpty() || segments.isEmpty()) return;
+        if (searchThread != null && searchThread.isAlive()) return;
+
+        byte[] needle = query.getBytes(StandardCharsets.UTF_8);
+        int selected = listView.getSelectionModel().getSelectedIndex();
+        long from = selected >= 0 && selected + 1 < lineCount ? lineStarts[selected + 1] : 0;
+        long size = mappedSize;
+        // Как и индексатор, поиск работает со снимком: FX-поток меняет segments при follow и close()
+        List<MappedByteBuffer> snapshot = new ArrayList<>(segments);
+        status.accept("Searching: " + query);
+
+        searchThread = new Thread(() -> {
+            long found = indexOf(snapshot, needle, from, size);
+            if (found < 0 && from > 0) found = indexOf(snapshot, needle, 0, Math.min(size, from + needle.length));
+            long result = found;
+            Platform.runLater(() -> {
+                if (result < 0) {
+                    status.accept("Not found: " + query);
+                    return;
+                }
+                if (result >= indexedEnd) {
+                    status.accept("Found beyond indexed range, indexing still in progress");
+                    return;
+                }
+                int line = lineOfOffset(result);
+                listView.getSelectionModel().clearAndSelect(line);
+                listView.scrollTo(Math.max(0, line - 3));
+                status.accept("Found at line " + (line + 1));
+            });
+        }, "large-file-search");
+        searchThread.setDaemon(true);
+        searchThread.start();
+    }
+
+    private long indexOf(List<MappedByteBuffer> segs, byte[] needle, long from, long to) {
+        byte first = needle[0];
+        long last = to - needle.length;
+        for (long pos = from; pos <= last && !closed; ) {
+            int seg = (int) (pos / SEGMENT_SIZE);
+            MappedByteBuffer buf = segs.get(seg);
+            long segBase = (long) seg * SEGMENT_SIZE;
+            int limit = (int) Math.min(buf.limit(), last - segBase + 1);
+            for (int i = (int) (pos - segBase); i < limit; i++) {
+                if (buf.get(i) != first) continue;
+                long candidate = segBase + i;
+                boolean match = true;
+                for (int k = 1; k < needle.length; k++) {
+                    if (byteAt(segs, candidate + k) != needle[k]) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) return candidate;
+            }
+            if (Thread.currentThread().isInterrupted()) return -1;
+            pos = segBase + limit;
+        }
+        return -1;
+    }
+
+    private void checkForGrowth() {
+        if (closed || channel == null) return;
+        if (indexThread != null && indexThread.isAlive()) return;
+        // Пока идёт поиск, сегменты не переотображаем - проверим рост на следующем тике
+        if (searchThread != null && searchThread.isAlive()) return;
+        try {
+            long size = channel.size();
+            if (size == mappedSize) return;
+            if (size < mappedSize) {
+                // Файл усечён (ротация лога) - перестраиваем индекс с нуля
+                segments.clear();
+                mappedSize = 0;
+                lineStarts = new long[1024];
+                indexedEnd = 0;
+                lineCount = 1;
+                lineList.publish(1);
+            }
+            remap(size);
+            startIndexing();
+        } catch (IOException e) {
+            status.accept("Follow failed: " + e.getMessage());
+            followBox.setSelected(false);
+            followTimer.stop();
+        }
+    }
+
+    private void scrollToEnd() {
+        int count = lineList.size();
+        if (count > 0) listView.scrollTo(count - 1);
+    }
+
+    /**
+     * Список номеров строк без материализации элементов: размер растёт по мере индексации.
+     */
+    private static final class LineList extends ObservableListBase<Integer> {
+        private int size;
+
+        void publish(int newSize) {
+            if (newSize == size) return;
+            int old = size;
+            size = newSize;
+            beginChange();
+            if (newSize > old) {
+                nextAdd(old, newSize);
+            } else {
+                List<Integer> removed = new ArrayList<>(old - newSize);
+                for (int i = newSize; i < old; i++) removed.add(i);
+                nextRemove(newSize, removed);
+            }
+            endChange();
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
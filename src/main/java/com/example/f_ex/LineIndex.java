@@ -0,0 +1,109 @@
+package com.example.f_ex;
+
+import java.util.Arrays;
+
+/**
+ * Таблица начал строк документа: отсортированный массив смещений, поиск строки
+ * по смещению бинарным поиском и инкрементальное обновление при правках.
+ * Строки нумеруются с 0.
+ */
+final class LineIndex {
+    private int[] starts;
+    private int count;
+    private int length;
+
+    private LineIndex(int[] starts, int count, int length) {
+        this.starts = starts;
+        this.count = count;
+        this.length = length;
+    }
+
+    static LineIndex of(CharSequence text) {
+        int[] starts = new int[16];
+        int count = 1;
+        int len = text == null ? 0 : text.length();
+        for (int i = 0; i < len; i++) {
+            if (text.charAt(i) == '\n') {
+                if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = i + 1;
+            }
+        }
+        return new LineIndex(starts, count, len);
+    }
+
+    int lineCount() {
+        return count;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int lineOf(int offset) {
+        if (offset <= 0) return 0;
+        return firstStartAfter(Math.min(offset, length)) - 1;
+    }
+
+    int lineStart(int line) {
+        return starts[clampLine(line)];
+    }
+
+    /** Конец строки без завершающего '\n'. */
+    int lineEnd(int line) {
+        int l = clampLine(line);
+        return l + 1 < count ? starts[l + 1] - 1 : length;
+    }
+
+    boolean endsWithNewline() {
+        return length > 0 && starts[count - 1] == length;
+    }
+
+    /** Правка: с позиции position удалено removedLength символов и вставлен inserted. */
+    void applyChange(int position, int removedLength, CharSequence inserted) {
+        int removedEnd = position + removedLength;
+        int delta = inserted.length() - removedLength;
+        // Строки, начинавшиеся внутри удалённого фрагмента, исчезают
+        int from = firstStartAfter(position);
+        int to = firstStartAfter(removedEnd);
+        int added = 0;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') added++;
+        }
+
+        int tail = count - to;
+        int newCount = from + added + tail;
+        if (newCount > starts.length) {
+            int[] grown = new int[Math.max(newCount, starts.length * 2)];
+            System.arraycopy(starts, 0, grown, 0, from);
+            System.arraycopy(starts, to, grown, from + added, tail);
+            starts = grown;
+        } else {
+            System.arraycopy(starts, to, starts, from + added, tail);
+        }
+        for (int i = from + added; i < newCount; i++) {
+            starts[i] += delta;
+        }
+        int k = from;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') starts[k++] = position + i + 1;
+        }
+        count = newCount;
+        length += delta;
+    }
+
+    private int clampLine(int line) {
+        return Math.max(0, Math.min(line, count - 1));
+    }
+
+    // Индекс первой строки, начало которой строго больше offset
+    private int firstStartAfter(int offset) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= offset) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
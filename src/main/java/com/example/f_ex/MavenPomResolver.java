@@ -0,0 +1,582 @@
+package com.example.f_ex;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разрешение compile classpath Maven-проекта без запуска Maven: pom.xml читается
+ * напрямую с наследованием от parent, импортом BOM и подстановкой свойств, артефакты
+ * ищутся в локальном репозитории (~/.m2/repository). Транзитивные зависимости
+ * обходятся в ширину, как в Maven: ближайшая версия побеждает, optional и exclusions
+ * учитываются. Разобранные POM запоминаются между проектами.
+ * <p>
+ * Профили и диапазоны версий не поддерживаются - такие артефакты попадают в
+ * {@link Result#missing}, и вызывающий запускает Maven.
+ */
+final class MavenPomResolver {
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+    private static final int MAX_INTERPOLATION_DEPTH = 10;
+
+    /** Модуль реактора (или сам проект, если модулей нет). */
+    static final class Result {
+        /** artifactId модуля. */
+        final String name;
+        final Path dir;
+        final Path sourceRoot;
+        final Path testRoot;
+        final List<Path> classpath;
+        /** Тестовые зависимости сверх classpath. */
+        final List<Path> testClasspath;
+        /** Модули реактора, от которых зависит этот: их исходники, а не JAR из репозитория. */
+        final List<String> dependsOn;
+        /** Артефакты и POM compile classpath, которых нет в локальном репозитории или которые не удалось разобрать. */
+        final List<String> missing;
+
+        private Result(String name, Path dir, Path sourceRoot, Path testRoot, List<Path> classpath,
+                       List<Path> testClasspath, List<String> dependsOn, List<String> missing) {
+            this.name = name;
+            this.dir = dir;
+            this.sourceRoot = sourceRoot;
+            this.testRoot = testRoot;
+            this.classpath = classpath;
+            this.testClasspath = testClasspath;
+            this.dependsOn = dependsOn;
+            this.missing = missing;
+        }
+    }
+
+    private static final class Dep {
+        String groupId;
+        String artifactId;
+        String version;
+        String scope;
+        String type;
+        String classifier;
+        String systemPath;
+        boolean optional;
+        final Set<String> exclusions = new HashSet<>();
+
+        String key() {
+            return groupId + ":" + artifactId + ":" + (type == null ? "jar" : type) + ":" + (classifier == null ? "" : classifier);
+        }
+
+        String ga() {
+            return groupId + ":" + artifactId;
+        }
+
+        Dep copy() {
+            Dep d = new Dep();
+            d.groupId = groupId;
+            d.artifactId = artifactId;
+            d.version = version;
+            d.scope = scope;
+            d.type = type;
+            d.classifier = classifier;
+            d.systemPath = systemPath;
+            d.optional = optional;
+            d.exclusions.addAll(exclusions);
+            return d;
+        }
+    }
+
+    // Содержимое pom.xml как есть, без подстановки свойств
+    private static final class Pom {
+        String groupId;
+        String artifactId;
+        String version;
+        String parentGroupId;
+        String parentArtifactId;
+        String parentVersion;
+        String parentRelativePath;
+        String packaging;
+        String sourceDirectory;
+        String testSourceDirectory;
+        final List<String> modules = new ArrayList<>();
+        final Map<String, String> properties = new LinkedHashMap<>();
+        final List<Dep> managed = new ArrayList<>();
+        final List<Dep> dependencies = new ArrayList<>();
+    }
+
+    private static final class Effective {
+        String groupId;
+        String artifactId;
+        String version;
+        String sourceDirectory;
+        String testSourceDirectory;
+        final Map<String, String> properties = new HashMap<>();
+        final Map<String, Dep> managed = new LinkedHashMap<>();
+        final Map<String, Dep> dependencies = new LinkedHashMap<>();
+    }
+
+    private static final class Missing extends Exception {
+        Missing(String what) {
+            super(what, null, false, false);
+        }
+    }
+
+    private static final class Parsed {
+        final long modified;
+        final long size;
+        final Pom pom;
+
+        Parsed(long modified, long size, Pom pom) {
+            this.modified = modified;
+            this.size = size;
+            this.pom = pom;
+        }
+    }
+
+    private final Path repository;
+    private final Map<Path, Parsed> parsed = new ConcurrentHashMap<>();
+
+    MavenPomResolver() {
+        this(localRepository());
+    }
+
+    MavenPomResolver(Path repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Модули проекта по &lt;modules&gt; (рекурсивно); агрегаторы с packaging pom
+     * пропускаются. Проект без модулей - единственный результат.
+     */
+    List<Result> resolveReactor(Path projectRoot) {
+        Path rootPom = projectRoot.resolve("pom.xml").toAbsolutePath().normalize();
+        Map<String, Path> reactor = new LinkedHashMap<>();
+        List<Path> poms = new ArrayList<>();
+        collectModules(rootPom, poms, new HashSet<>());
+        for (Path pom : poms) {
+            try {
+                Effective e = effective(pom, new HashSet<>());
+                reactor.put(e.groupId + ":" + e.artifactId, pom);
+            } catch (Missing ignored) {
+                // модуль разберётся ниже и попадёт в missing
+            }
+        }
+        List<Result> results = new ArrayList<>();
+        for (Path pom : poms) {
+            if (poms.size() > 1 && isAggregator(pom)) continue;
+            results.add(resolveModule(pom, reactor));
+        }
+        return results;
+    }
+
+    private void collectModules(Path pom, List<Path> out, Set<Path> seen) {
+        if (!seen.add(pom)) return;
+        out.add(pom);
+        Pom raw;
+        try {
+            raw = parse(pom);
+        } catch (Missing e) {
+            return;
+        }
+        for (String module : raw.modules) {
+            Path candidate = pom.getParent().resolve(module).normalize();
+            if (Files.isDirectory(candidate)) candidate = candidate.resolve("pom.xml");
+            if (Files.isRegularFile(candidate)) collectModules(candidate, out, seen);
+        }
+    }
+
+    private boolean isAggregator(Path pom) {
+        try {
+            return "pom".equals(parse(pom).packaging);
+        } catch (Missing e) {
+            return false;
+        }
+    }
+
+    private Result resolveModule(Path pomFile, Map<String, Path> reactor) {
+        Path dir = pomFile.getParent();
+        Path defaultSrc = dir.resolve("src").resolve("main").resolve("java");
+        Path defaultTest = dir.resolve("src").resolve("test").resolve("java");
+        Effective root;
+        try {
+            root = effective(pomFile, new HashSet<>());
+        } catch (Missing e) {
+            String name = dir.getFileName() != null ? dir.getFileName().toString() : dir.toString();
+            return new Result(name, dir, defaultSrc, defaultTest, List.of(), List.of(), List.of(), List.of(e.getMessage()));
+        }
+        Path src = root.sourceDirectory != null ? dir.resolve(root.sourceDirectory).normalize() : defaultSrc;
+        Path test = root.testSourceDirectory != null ? dir.resolve(root.testSourceDirectory).normalize() : defaultTest;
+
+        Set<Path> classpath = new LinkedHashSet<>();
+        Set<String> dependsOn = new LinkedHashSet<>();
+        List<String> missing = new ArrayList<>();
+        walk(root, reactor, Set.of("compile", "provided", "system"), classpath, dependsOn, missing);
+        // Тестовый classpath - best effort: его нехватка не повод запускать Maven
+        Set<Path> testClasspath = new LinkedHashSet<>();
+        walk(root, reactor, Set.of("compile", "provided", "system", "test"), testClasspath, new HashSet<>(), new ArrayList<>());
+        testClasspath.removeAll(classpath);
+        return new Result(root.artifactId, dir, src, test, new ArrayList<>(classpath), new ArrayList<>(testClasspath),
+                new ArrayList<>(dependsOn), missing);
+    }
+
+    private void walk(Effective root, Map<String, Path> reactor, Set<String> scopes,
+                      Set<Path> classpath, Set<String> dependsOn, List<String> missing) {
+        Set<String> seen = new HashSet<>();
+        seen.add(root.groupId + ":" + root.artifactId);
+        Deque<Dep> queue = new ArrayDeque<>();
+        for (Dep d : root.dependencies.values()) {
+            if (scopes.contains(scopeOf(d))) queue.add(d);
+        }
+        while (!queue.isEmpty()) {
+            Dep d = queue.poll();
+            // Обход в ширину: первая встреченная версия - ближайшая к проекту
+            if (!seen.add(d.ga())) continue;
+            Path reactorPom = reactor.get(d.ga());
+            Effective child;
+            if (reactorPom != null) {
+                // Соседний модуль: видим его исходники, JAR в репозитории не нужен
+                dependsOn.add(d.artifactId);
+                try {
+                    child = effective(reactorPom, new HashSet<>());
+                } catch (Missing e) {
+                    missing.add(e.getMessage());
+                    continue;
+                }
+            } else {
+                if (unresolved(d.version)) {
+                    missing.add(d.ga() + ":" + d.version);
+                    continue;
+                }
+                if ("system".equals(scopeOf(d))) {
+                    if (d.systemPath != null && Files.exists(Path.of(d.systemPath))) classpath.add(Path.of(d.systemPath));
+                    else missing.add(d.ga() + " (systemPath)");
+                    continue;
+                }
+                if (!"pom".equals(d.type)) {
+                    Path jar = artifact(d);
+                    if (Files.isRegularFile(jar)) classpath.add(jar);
+                    else missing.add(d.ga() + ":" + d.version);
+                }
+                try {
+                    child = effective(repositoryPom(d.groupId, d.artifactId, d.version), new HashSet<>());
+                } catch (Missing e) {
+                    missing.add(e.getMessage());
+                    continue;
+                }
+            }
+            for (Dep t : child.dependencies.values()) {
+                String scope = scopeOf(t);
+                // В classpath транзитивно попадают только compile-зависимости
+                if (t.optional || !scope.equals("compile")) continue;
+                if (d.exclusions.contains(t.ga()) || d.exclusions.contains(t.groupId + ":*") || d.exclusions.contains("*:*")) continue;
+                Dep next = t.copy();
+                next.scope = scopeOf(d);
+                next.exclusions.addAll(d.exclusions);
+                // dependencyManagement проекта главнее версий из чужих POM
+                Dep managed = root.managed.get(next.key());
+                if (managed != null && managed.version != null) next.version = managed.version;
+                queue.add(next);
+            }
+        }
+    }
+
+    /**
+     * Эффективная модель как в Maven: сырые POM сливаются вверх по цепочке parent,
+     * и только потом всё подставляется одним итоговым набором свойств, поэтому
+     * ${x} из parent видит значение x, переопределённое в модуле.
+     */
+    private Effective effective(Path pomFile, Set<Path> visiting) throws Missing {
+        // Цепочка от модуля к корневому parent
+        List<Path> files = new ArrayList<>();
+        List<Pom> chain = new ArrayList<>();
+        Path file = pomFile.toAbsolutePath().normalize();
+        while (true) {
+            if (!visiting.add(file)) throw new Missing("cyclic parent/import: " + file);
+            files.add(file);
+            Pom p = parse(file);
+            chain.add(p);
+            if (p.parentArtifactId == null) break;
+            file = locateParent(file, p).toAbsolutePath().normalize();
+        }
+        Pom pom = chain.get(0);
+        Effective e = new Effective();
+
+        for (int i = chain.size() - 1; i >= 0; i--) e.properties.putAll(chain.get(i).properties);
+        e.groupId = pom.groupId != null ? pom.groupId : pom.parentGroupId;
+        e.artifactId = pom.artifactId;
+        e.version = pom.version != null ? pom.version : pom.parentVersion;
+        putBuiltins(e.properties, e, pom, files.get(0).getParent());
+        e.groupId = interpolate(e.groupId, e.properties);
+        e.version = interpolate(e.version, e.properties);
+        for (Pom p : chain) {
+            if (e.sourceDirectory == null) e.sourceDirectory = interpolate(p.sourceDirectory, e.properties);
+            if (e.testSourceDirectory == null) e.testSourceDirectory = interpolate(p.testSourceDirectory, e.properties);
+        }
+
+        // Объявленное в модуле перекрывает parent, поэтому модуль идёт первым
+        List<Dep> imports = new ArrayList<>();
+        for (Pom p : chain) {
+            for (Dep raw : p.managed) {
+                Dep d = interpolate(raw, e.properties);
+                if ("import".equals(d.scope) && "pom".equals(d.type)) imports.add(d);
+                else e.managed.putIfAbsent(d.key(), d);
+            }
+        }
+        // Импортированные BOM только дополняют явно объявленное
+        for (Dep bom : imports) {
+            if (unresolved(bom.version)) throw new Missing(bom.ga() + ":" + bom.version);
+            Effective b = effective(repositoryPom(bom.groupId, bom.artifactId, bom.version), new HashSet<>(visiting));
+            for (Map.Entry<String, Dep> m : b.managed.entrySet()) e.managed.putIfAbsent(m.getKey(), m.getValue());
+        }
+
+        // Порядок объявления - от корневого parent к модулю; модуль заменяет зависимость с тем же ключом
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            for (Dep raw : chain.get(i).dependencies) {
+                Dep d = interpolate(raw, e.properties);
+                e.dependencies.put(d.key(), d);
+            }
+        }
+        for (Dep d : e.dependencies.values()) {
+            Dep managed = e.managed.get(d.key());
+            if (managed == null) continue;
+            if (d.version == null) d.version = managed.version;
+            if (d.scope == null) d.scope = managed.scope;
+            if (d.exclusions.isEmpty()) d.exclusions.addAll(managed.exclusions);
+        }
+        visiting.removeAll(files);
+        return e;
+    }
+
+    private Path locateParent(Path pomFile, Pom pom) throws Missing {
+        // Пустой relativePath - parent берётся только из репозитория
+        String rel = pom.parentRelativePath != null ? pom.parentRelativePath : "../pom.xml";
+        if (!rel.isBlank()) {
+            Path candidate = pomFile.getParent().resolve(rel).normalize();
+            if (Files.isDirectory(candidate)) candidate = candidate.resolve("pom.xml");
+            if (Files.isRegularFile(candidate)) {
+                Pom p = parse(candidate);
+                String g = p.groupId != null ? p.groupId : p.parentGroupId;
+                if (pom.parentArtifactId.equals(p.artifactId) && pom.parentGroupId != null && pom.parentGroupId.equals(g)) return candidate;
+            }
+        }
+        // ${revision} и т.п. в версии parent берутся из свойств самого модуля
+        String version = interpolate(pom.parentVersion, pom.properties);
+        if (unresolved(version)) throw new Missing(pom.parentGroupId + ":" + pom.parentArtifactId + ":" + version);
+        return repositoryPom(pom.parentGroupId, pom.parentArtifactId, version);
+    }
+
+    private Pom parse(Path file) throws Missing {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            Parsed cached = parsed.get(file);
+            if (cached != null && cached.modified == modified && cached.size == size) return cached.pom;
+            Pom pom = read(file);
+            parsed.put(file, new Parsed(modified, size, pom));
+            return pom;
+        } catch (Missing e) {
+            throw e;
+        } catch (Exception e) {
+            throw new Missing(file + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private static Pom read(Path file) throws Exception {
+        if (!Files.isRegularFile(file)) throw new Missing(file.toString());
+        DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+        f.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        f.setExpandEntityReferences(false);
+        DocumentBuilder b = f.newDocumentBuilder();
+        Document doc = b.parse(file.toFile());
+        Element project = doc.getDocumentElement();
+
+        Pom pom = new Pom();
+        pom.groupId = text(project, "groupId");
+        pom.artifactId = text(project, "artifactId");
+        pom.version = text(project, "version");
+        pom.packaging = text(project, "packaging");
+        Element parent = child(project, "parent");
+        if (parent != null) {
+            pom.parentGroupId = text(parent, "groupId");
+            pom.parentArtifactId = text(parent, "artifactId");
+            pom.parentVersion = text(parent, "version");
+            Element rel = child(parent, "relativePath");
+            if (rel != null) pom.parentRelativePath = rel.getTextContent().trim();
+        }
+        Element props = child(project, "properties");
+        if (props != null) {
+            for (Element p : children(props)) pom.properties.put(p.getTagName(), p.getTextContent().trim());
+        }
+        Element build = child(project, "build");
+        if (build != null) {
+            pom.sourceDirectory = text(build, "sourceDirectory");
+            pom.testSourceDirectory = text(build, "testSourceDirectory");
+        }
+        Element modules = child(project, "modules");
+        if (modules != null) {
+            for (Element m : children(modules)) {
+                String name = m.getTextContent().trim();
+                if (m.getTagName().equals("module") && !name.isEmpty()) pom.modules.add(name);
+            }
+        }
+        Element dm = child(project, "dependencyManagement");
+        if (dm != null) readDependencies(child(dm, "dependencies"), pom.managed);
+        readDependencies(child(project, "dependencies"), pom.dependencies);
+        return pom;
+    }
+
+    private static void readDependencies(Element list, List<Dep> out) {
+        if (list == null) return;
+        for (Element e : children(list)) {
+            if (!e.getTagName().equals("dependency")) continue;
+            Dep d = new Dep();
+            d.groupId = text(e, "groupId");
+            d.artifactId = text(e, "artifactId");
+            d.version = text(e, "version");
+            d.scope = text(e, "scope");
+            d.type = text(e, "type");
+            d.classifier = text(e, "classifier");
+            d.systemPath = text(e, "systemPath");
+            d.optional = "true".equals(text(e, "optional"));
+            Element ex = child(e, "exclusions");
+            if (ex != null) {
+                for (Element x : children(ex)) d.exclusions.add(text(x, "groupId") + ":" + text(x, "artifactId"));
+            }
+            if (d.groupId != null && d.artifactId != null) out.add(d);
+        }
+    }
+
+    private static void putBuiltins(Map<String, String> props, Effective e, Pom pom, Path dir) {
+        put(props, "project.groupId", e.groupId);
+        put(props, "project.artifactId", e.artifactId);
+        put(props, "project.version", e.version);
+        put(props, "project.parent.groupId", pom.parentGroupId);
+        put(props, "project.parent.version", pom.parentVersion);
+        put(props, "project.basedir", dir.toString());
+        put(props, "basedir", dir.toString());
+        // Устаревшие синонимы из Maven 2
+        put(props, "pom.groupId", e.groupId);
+        put(props, "pom.version", e.version);
+        put(props, "version", e.version);
+    }
+
+    private static void put(Map<String, String> props, String key, String value) {
+        if (value != null) props.put(key, value);
+    }
+
+    private static Dep interpolate(Dep raw, Map<String, String> props) {
+        Dep d = raw.copy();
+        d.groupId = interpolate(d.groupId, props);
+        d.artifactId = interpolate(d.artifactId, props);
+        d.version = interpolate(d.version, props);
+        d.scope = interpolate(d.scope, props);
+        d.type = interpolate(d.type, props);
+        d.classifier = interpolate(d.classifier, props);
+        d.systemPath = interpolate(d.systemPath, props);
+        return d;
+    }
+
+    static String interpolate(String value, Map<String, String> props) {
+        if (value == null || !value.contains("${")) return value;
+        String current = value;
+        for (int i = 0; i < MAX_INTERPOLATION_DEPTH && current.contains("${"); i++) {
+            Matcher m = PROPERTY.matcher(current);
+            StringBuilder sb = new StringBuilder();
+            boolean changed = false;
+            while (m.find()) {
+                String name = m.group(1);
+                String v = props.get(name);
+                if (v == null && name.startsWith("env.")) v = System.getenv(name.substring(4));
+                if (v == null) v = System.getProperty(name);
+                if (v != null) changed = true;
+                m.appendReplacement(sb, Matcher.quoteReplacement(v != null ? v : m.group()));
+            }
+            m.appendTail(sb);
+            current = sb.toString();
+            if (!changed) break;
+        }
+        return current;
+    }
+
+    private static boolean unresolved(String version) {
+        // Диапазоны версий требуют метаданных удалённого репозитория
+        return version == null || version.contains("${") || version.startsWith("[") || version.startsWith("(");
+    }
+
+    private static String scopeOf(Dep d) {
+        return d.scope == null || d.scope.isBlank() ? "compile" : d.scope;
+    }
+
+    private Path artifact(Dep d) {
+        String classifier = d.classifier;
+        if (classifier == null && "test-jar".equals(d.type)) classifier = "tests";
+        String name = d.artifactId + "-" + d.version + (classifier != null ? "-" + classifier : "") + ".jar";
+        return versionDir(d.groupId, d.artifactId, d.version).resolve(name);
+    }
+
+    private Path repositoryPom(String groupId, String artifactId, String version) {
+        return versionDir(groupId, artifactId, version).resolve(artifactId + "-" + version + ".pom");
+    }
+
+    private Path versionDir(String groupId, String artifactId, String version) {
+        Path dir = repository;
+        for (String part : groupId.split("\\.")) dir = dir.resolve(part);
+        return dir.resolve(artifactId).resolve(version);
+    }
+
+    // -Dmaven.repo.local, затем localRepository из ~/.m2/settings.xml
+    private static Path localRepository() {
+        String home = System.getProperty("user.home");
+        String override = System.getProperty("maven.repo.local");
+        if (override != null && !override.isBlank()) return Path.of(override);
+        Path settings = Paths.get(home, ".m2", "settings.xml");
+        if (Files.isRegularFile(settings)) {
+            try {
+                DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+                f.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+                f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+                String repo = text(f.newDocumentBuilder().parse(settings.toFile()).getDocumentElement(), "localRepository");
+                if (repo != null && !repo.isBlank()) return Path.of(interpolate(repo, Map.of("user.home", home)));
+            } catch (Exception ignored) {
+            }
+        }
+        return Paths.get(home, ".m2", "repository");
+    }
+
+    private static Element child(Element parent, String name) {
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element && ((Element) n).getTagName().equals(name)) return (Element) n;
+        }
+        return null;
+    }
+
+    private static List<Element> children(Element parent) {
+        List<Element> out = new ArrayList<>();
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element) out.add((Element) n);
+        }
+        return out;
+    }
+
+    private static String text(Element parent, String name) {
+        Element e = child(parent, name);
+        if (e == null) return null;
+        String t = e.getTextContent().trim();
+        return t.isEmpty() ? null : t;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.f_ex;
+
+import java.nio.file.Path;
+
+final class Problem {
+    final Path file;
+    final int line; // 1-based
+    final String kind; // error|warning|note
+    final String message;
+    final int column; // 1-based, 0 - неизвестна
+    final int start; // смещение в тексте файла, -1 - неизвестно
+    final int end;
+
+    Problem(Path file, int line, String kind, String message) {
+        this(file, line, 0, -1, -1, kind, message);
+    }
+
+    Problem(Path file, int line, int column, int start, int end, String kind, String message) {
+        this.file = file;
+        this.line = line;
+        this.column = column;
+        this.start = start;
+        this.end = end;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        String fn = file != null && file.getFileName() != null ? file.getFileName().toString() : String.valueOf(file);
+        return fn + ":" + line + (column > 0 ? ":" + column : "") + " [" + kind + "] " + message;
+    }
+}
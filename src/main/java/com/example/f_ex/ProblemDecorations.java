@@ -0,0 +1,209 @@
+package com.example.f_ex;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.reactfx.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Слой подчёркиваний замечаний в редакторе. Диапазоны хранятся в смещениях текущего
+ * текста и сдвигаются при правках; последняя синтаксическая раскраска запоминается.
+ * При новых замечаниях перекрашиваются только появившиеся и исчезнувшие диапазоны,
+ * а не весь файл.
+ */
+final class ProblemDecorations {
+    private static final String ERROR = "errRange";
+    private static final String WARNING = "warnRange";
+
+    private static final class Range {
+        private final int start;
+        private final int end;
+        private final String style;
+
+        private Range(int start, int end, String style) {
+            this.start = start;
+            this.end = end;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Range)) return false;
+            Range r = (Range) o;
+            return start == r.start && end == r.end && style.equals(r.style);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, style);
+        }
+    }
+
+    private final CodeArea area;
+    private final Subscription subscription;
+    private List<Range> ranges = List.of(); // по возрастанию start
+    private StyleSpans<Collection<String>> syntax;
+
+    /** Подписывать до подсветки, чтобы диапазоны успели сдвинуться к перекраске. */
+    ProblemDecorations(CodeArea area, DocumentChangeBus changes) {
+        this.area = area;
+        this.subscription = changes.subscribe(this::shift);
+    }
+
+    /** Полная перекраска после правки: новая синтаксическая раскраска плюс подчёркивания. */
+    void restyle(StyleSpans<Collection<String>> syntax) {
+        this.syntax = syntax;
+        int length = syntax.length();
+        area.setStyleSpans(0, ranges.isEmpty() ? syntax : merge(syntax, overlay(0, length)));
+    }
+
+    /** Новые замечания файла; lines - таблица строк текущего текста редактора. */
+    void update(List<Problem> problems, LineIndex lines) {
+        List<Range> next = toRanges(problems, lines);
+        List<Range> previous = ranges;
+        ranges = next;
+        // Раскраски ещё не было - диапазоны применятся при первой перекраске
+        if (syntax == null || syntax.length() != area.getLength()) return;
+
+        Set<Range> before = new HashSet<>(previous);
+        Set<Range> after = new HashSet<>(next);
+        List<int[]> dirty = new ArrayList<>();
+        for (Range r : previous) if (!after.contains(r)) dirty.add(new int[]{r.start, r.end});
+        for (Range r : next) if (!before.contains(r)) dirty.add(new int[]{r.start, r.end});
+        if (dirty.isEmpty()) return;
+        dirty.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        int from = dirty.get(0)[0];
+        int to = dirty.get(0)[1];
+        for (int i = 1; i <= dirty.size(); i++) {
+            if (i < dirty.size() && dirty.get(i)[0] <= to) {
+                to = Math.max(to, dirty.get(i)[1]);
+                continue;
+            }
+            area.setStyleSpans(from, merge(syntax.subView(from, to), overlay(from, to)));
+            if (i < dirty.size()) {
+                from = dirty.get(i)[0];
+                to = dirty.get(i)[1];
+            }
+        }
+    }
+
+    void close() {
+        subscription.unsubscribe();
+    }
+
+    private void shift(PlainTextChange change) {
+        if (ranges.isEmpty()) return;
+        int pos = change.getPosition();
+        int removedEnd = pos + change.getRemoved().length();
+        int delta = change.getInserted().length() - change.getRemoved().length();
+        List<Range> shifted = new ArrayList<>(ranges.size());
+        for (Range r : ranges) {
+            // Начало внутри удалённого куска уходит за вставку, конец - к её началу;
+            // правка внутри диапазона растягивает или сжимает его
+            int start = r.start < pos ? r.start : r.start >= removedEnd ? r.start + delta : pos + change.getInserted().length();
+            int end = r.end <= pos ? r.end : r.end >= removedEnd ? r.end + delta : pos;
+            if (end > start) shifted.add(new Range(start, end, r.style));
+        }
+        ranges = shifted;
+    }
+
+    private static List<Range> toRanges(List<Problem> problems, LineIndex lines) {
+        if (problems == null || problems.isEmpty()) return List.of();
+        int length = lines.length();
+        List<Range> out = new ArrayList<>();
+        for (Problem p : problems) {
+            String style = "error".equalsIgnoreCase(p.kind) ? ERROR : "warning".equalsIgnoreCase(p.kind) ? WARNING : null;
+            if (style == null) continue;
+            int start = p.start;
+            int end = p.end;
+            if (start < 0 || start > length) {
+                // Позиция неизвестна (запасной javac) - подчёркиваем строку целиком
+                if (p.line <= 0 || p.line > lines.lineCount()) continue;
+                start = lines.lineStart(p.line - 1);
+                end = lines.lineEnd(p.line - 1);
+            } else if (end <= start || end > length) {
+                // Пустой диапазон (например, "';' expected") - один символ у позиции
+                int line = lines.lineOf(start);
+                if (start < lines.lineEnd(line)) {
+                    end = start + 1;
+                } else if (start > lines.lineStart(line)) {
+                    end = start;
+                    start--;
+                } else {
+                    continue;
+                }
+            }
+            if (end > start) out.add(new Range(start, end, style));
+        }
+        out.sort((a, b) -> Integer.compare(a.start, b.start));
+        return out;
+    }
+
+    // Подчёркивания на [from, to); ошибки важнее предупреждений
+    private StyleSpans<Collection<String>> overlay(int from, int to) {
+        List<int[]> events = new ArrayList<>();
+        for (Range r : ranges) {
+            if (r.start >= to) break;
+            if (r.end <= from) continue;
+            int kind = r.style.equals(ERROR) ? 0 : 1;
+            events.add(new int[]{Math.max(r.start, from), kind, 1});
+            events.add(new int[]{Math.min(r.end, to), kind, -1});
+        }
+        events.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        StyleSpansBuilder<Collection<String>> spans = new StyleSpansBuilder<>();
+        int[] open = new int[2];
+        int pos = from;
+        for (int[] e : events) {
+            if (e[0] > pos) {
+                spans.add(styleOf(open), e[0] - pos);
+                pos = e[0];
+            }
+            open[e[1]] += e[2];
+        }
+        spans.add(styleOf(open), to - pos);
+        return spans.create();
+    }
+
+    private static Collection<String> styleOf(int[] open) {
+        if (open[0] > 0) return Collections.singleton(ERROR);
+        if (open[1] > 0) return Collections.singleton(WARNING);
+        return Collections.emptyList();
+    }
+
+    private static StyleSpans<Collection<String>> merge(StyleSpans<Collection<String>> a, StyleSpans<Collection<String>> b) {
+        var itA = a.iterator();
+        var itB = b.iterator();
+        var sa = itA.hasNext() ? itA.next() : null;
+        var sb = itB.hasNext() ? itB.next() : null;
+        int ra = sa != null ? sa.getLength() : 0;
+        int rb = sb != null ? sb.getLength() : 0;
+
+        StyleSpansBuilder<Collection<String>> out = new StyleSpansBuilder<>();
+        while (sa != null && sb != null) {
+            int len = Math.min(ra, rb);
+            List<String> merged = new ArrayList<>(sa.getStyle());
+            for (String s : sb.getStyle()) {
+                if (!merged.contains(s)) merged.add(s);
+            }
+            out.add(merged, len);
+
+            ra -= len;
+            rb -= len;
+            if (ra == 0) { sa = itA.hasNext() ? itA.next() : null; ra = sa != null ? sa.getLength() : 0; }
+            if (rb == 0) { sb = itB.hasNext() ? itB.next() : null; rb = sb != null ? sb.getLength() : 0; }
+        }
+        return out.create();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.f_ex;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Модель панели Problems. Список упорядочен по важности, затем по файлу и строке и
+ * состоит из сегментов (важность, файл); обновление диагностики файла заменяет только
+ * его сегменты, не пересортировывая остальное. Счётчики ошибок и предупреждений
+ * ведутся по разнице; фильтр применяет FilteredList только к изменённым элементам.
+ * Вызывать только из потока FX.
+ */
+final class ProblemsModel {
+    private static final int RANKS = 3;
+
+    private static final class Segment implements Comparable<Segment> {
+        private final int rank;
+        private final String file;
+
+        private Segment(int rank, Path file) {
+            this.rank = rank;
+            this.file = file != null ? file.toString() : "";
+        }
+
+        @Override
+        public int compareTo(Segment o) {
+            if (rank != o.rank) return Integer.compare(rank, o.rank);
+            int c = file.compareToIgnoreCase(o.file);
+            return c != 0 ? c : file.compareTo(o.file);
+        }
+    }
+
+    private final ObservableList<Problem> items = FXCollections.observableArrayList();
+    private final FilteredList<Problem> view = new FilteredList<>(items);
+    private final Map<Path, List<Problem>> byFile = new HashMap<>();
+    private final TreeMap<Segment, Integer> sizes = new TreeMap<>();
+    private int errors;
+    private int warnings;
+
+    ObservableList<Problem> view() {
+        return view;
+    }
+
+    void setFilter(Predicate<Problem> filter) {
+        view.setPredicate(filter);
+    }
+
+    List<Problem> get(Path file) {
+        return byFile.get(file);
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    int warnings() {
+        return warnings;
+    }
+
+    /** Заменяет замечания файла; пустой список убирает файл из панели. */
+    void set(Path file, List<Problem> problems) {
+        List<Problem> old = byFile.get(file);
+        if (old == null && (problems == null || problems.isEmpty())) return;
+        if (old != null) count(old, -1);
+        if (problems == null || problems.isEmpty()) byFile.remove(file);
+        else {
+            byFile.put(file, problems);
+            count(problems, 1);
+        }
+
+        List<List<Problem>> byRank = new ArrayList<>(RANKS);
+        for (int r = 0; r < RANKS; r++) byRank.add(new ArrayList<>());
+        if (problems != null) {
+            for (Problem p : problems) byRank.get(rankOf(p)).add(p);
+        }
+        for (int r = 0; r < RANKS; r++) {
+            List<Problem> next = byRank.get(r);
+            next.sort(Comparator.comparingInt(p -> p.line));
+            splice(new Segment(r, file), next);
+        }
+    }
+
+    void remove(Path file) {
+        set(file, List.of());
+    }
+
+    /** Убирает все замечания, например при смене проекта. */
+    void clear() {
+        items.clear();
+        byFile.clear();
+        sizes.clear();
+        errors = 0;
+        warnings = 0;
+    }
+
+    private void splice(Segment segment, List<Problem> next) {
+        Integer oldSize = sizes.get(segment);
+        int before = oldSize != null ? oldSize : 0;
+        if (before == 0 && next.isEmpty()) return;
+        int from = 0;
+        for (int size : sizes.headMap(segment, false).values()) from += size;
+        if (before > 0) items.remove(from, from + before);
+        if (!next.isEmpty()) items.addAll(from, next);
+        if (next.isEmpty()) sizes.remove(segment);
+        else sizes.put(segment, next.size());
+    }
+
+    private void count(List<Problem> problems, int sign) {
+        for (Problem p : problems) {
+            int rank = rankOf(p);
+            if (rank == 0) errors += sign;
+            else if (rank == 1) warnings += sign;
+        }
+    }
+
+    private static int rankOf(Problem p) {
+        return "error".equalsIgnoreCase(p.kind) ? 0 : "warning".equalsIgnoreCase(p.kind) ? 1 : 2;
+    }
+}
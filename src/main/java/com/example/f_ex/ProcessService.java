@@ -0,0 +1,310 @@
+package com.example.f_ex;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Запуск внешних процессов. Вывод читается в фоновых потоках и складывается
+ * в кольцевой буфер без блокировок, FX-поток забирает его пачками не чаще
+ * ~30 раз в секунду - очередь Platform.runLater не забивается даже процессом,
+ * печатающим сотни тысяч строк в секунду. Если консоль не успевает, читатель ждёт
+ * места в буфере, и процесс притормаживает на записи в pipe - строки не теряются.
+ * Все запущенные процессы отслеживаются для отмены.
+ */
+final class ProcessService {
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 20_000;
+    private static final long FRAME_NANOS = 33_000_000L;
+    private static final long KILL_GRACE_SECONDS = 3;
+
+    /** Запущенный процесс. */
+    static final class Job {
+        private final String name;
+        private final Process process;
+        private final Channel channel;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile int exitCode = -1;
+        private volatile boolean cancelled;
+
+        private Job(String name, Process process, Channel channel) {
+            this.name = name;
+            this.process = process;
+            this.channel = channel;
+        }
+
+        String name() { return name; }
+        Process process() { return process; }
+        OutputStream stdin() { return process.getOutputStream(); }
+        boolean isAlive() { return process.isAlive(); }
+        boolean isCancelled() { return cancelled; }
+        int exitCode() { return exitCode; }
+
+        /** Ждёт завершения процесса и чтения всего его вывода. Не вызывать из FX-потока. */
+        int waitFor() throws InterruptedException {
+            done.await();
+            return exitCode;
+        }
+
+        /** Завершает процесс вместе с дочерними; не ответившие за несколько секунд убиваются. */
+        void cancel() {
+            cancelled = true;
+            List<ProcessHandle> tree = process.descendants().toList();
+            tree.forEach(ProcessHandle::destroy);
+            process.destroy();
+            CompletableFuture.delayedExecutor(KILL_GRACE_SECONDS, TimeUnit.SECONDS).execute(() -> {
+                for (ProcessHandle h : tree) if (h.isAlive()) h.destroyForcibly();
+                if (process.isAlive()) process.destroyForcibly();
+            });
+        }
+    }
+
+    private final Channel console;
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final Set<Job> jobs = ConcurrentHashMap.newKeySet();
+    private final ExecutorService readers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "process-io");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private AnimationTimer timer;
+    private long lastFrame;
+
+    /** console - куда попадает вывод процессов без своего приёмника; вызывается в FX-потоке. */
+    ProcessService(Consumer<List<String>> console) {
+        this.console = new Channel(console);
+        channels.add(this.console);
+    }
+
+    /** Потокобезопасная запись строки в общую консоль, в одной очереди с выводом процессов. */
+    Consumer<String> console() {
+        return console::line;
+    }
+
+    Job start(String name, List<String> command, Path directory, IntConsumer onExit) throws IOException {
+        return start(name, command, directory, null, null, onExit);
+    }
+
+    /**
+     * Запускает процесс (stderr объединён с stdout).
+     *
+     * @param env    дополнительные переменные окружения или null
+     * @param output приёмник пачек строк в FX-потоке; null - общая консоль
+     * @param onExit код завершения, в FX-потоке после всего вывода процесса
+     */
+    Job start(String name, List<String> command, Path directory, Map<String, String> env,
+              Consumer<List<String>> output, IntConsumer onExit) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        if (directory != null) pb.directory(directory.toFile());
+        pb.redirectErrorStream(true);
+        if (env != null) pb.environment().putAll(env);
+        Process p = pb.start();
+        Channel channel = output == null ? console : new Channel(output);
+        if (channel != console) channels.add(channel);
+        Job job = new Job(name, p, channel);
+        jobs.add(job);
+        readers.execute(() -> read(job, onExit));
+        return job;
+    }
+
+    /** Процессы, которые ещё выполняются. */
+    List<Job> jobs() {
+        return new ArrayList<>(jobs);
+    }
+
+    /** @return сколько процессов было остановлено */
+    int cancelAll() {
+        List<Job> running = jobs();
+        for (Job job : running) job.cancel();
+        return running.size();
+    }
+
+    // Потоки платформенные: проект собирается под Java 17, виртуальных потоков там нет
+    private void read(Job job, IntConsumer onExit) {
+        Thread.currentThread().setName("process-io: " + job.name);
+        try {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(job.process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    job.channel.line(line);
+                }
+            } catch (IOException ignored) {
+                // Поток закрывается при отмене процесса
+            }
+            int code;
+            try {
+                code = job.process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                code = -1;
+            }
+            job.exitCode = code;
+            jobs.remove(job);
+            int exitCode = code;
+            job.channel.marker(() -> {
+                if (job.channel != console) channels.remove(job.channel);
+                if (onExit != null) onExit.accept(exitCode);
+            });
+            job.done.countDown();
+        } finally {
+            Thread.currentThread().setName("process-io");
+        }
+    }
+
+    private void wake() {
+        if (scheduled.compareAndSet(false, true)) Platform.runLater(this::startTimer);
+    }
+
+    private void startTimer() {
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    if (now - lastFrame < FRAME_NANOS) return;
+                    lastFrame = now;
+                    drainAll();
+                }
+            };
+        }
+        timer.start();
+    }
+
+    private void drainAll() {
+        for (Channel c : channels) c.drain();
+        if (channels.stream().allMatch(c -> c.ring.isEmpty())) {
+            timer.stop();
+            scheduled.set(false);
+            // Строка могла прийти между проверкой и сбросом флага
+            if (channels.stream().anyMatch(c -> !c.ring.isEmpty())) wake();
+        }
+    }
+
+    /** Очередь вывода одного приёмника. Писателей может быть несколько, читатель - FX-поток. */
+    private final class Channel {
+        private final LineRing ring = new LineRing(RING_CAPACITY);
+        private final Consumer<List<String>> sink;
+
+        private Channel(Consumer<List<String>> sink) {
+            this.sink = sink;
+        }
+
+        void line(String s) {
+            put(s);
+        }
+
+        /** Действие в FX-потоке после всех строк, записанных до него. */
+        void marker(Runnable action) {
+            put(action);
+        }
+
+        private void put(Object item) {
+            while (!ring.offer(item)) {
+                wake();
+                // Из FX-потока ждать нельзя: освободить буфер может только он сам
+                if (Platform.isFxApplicationThread()) drain();
+                else LockSupport.parkNanos(1_000_000);
+            }
+            wake();
+        }
+
+        void drain() {
+            List<String> batch = new ArrayList<>();
+            Object item;
+            for (int n = 0; n < MAX_BATCH && (item = ring.poll()) != null; n++) {
+                if (item instanceof String) {
+                    batch.add((String) item);
+                } else {
+                    flush(batch);
+                    ((Runnable) item).run();
+                }
+            }
+            flush(batch);
+        }
+
+        private void flush(List<String> batch) {
+            if (batch.isEmpty()) return;
+            sink.accept(new ArrayList<>(batch));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Ограниченная очередь без блокировок (схема Д. Вьюкова): писатель занимает ячейку
+     * CAS-ом по head, номер в sequence публикует элемент. Читатель один - FX-поток.
+     */
+    private static final class LineRing {
+        private final Object[] items;
+        private final AtomicLongArray sequence;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private volatile long tail;
+
+        LineRing(int capacity) {
+            items = new Object[capacity];
+            sequence = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) sequence.set(i, i);
+            mask = capacity - 1;
+        }
+
+        boolean offer(Object item) {
+            long pos = head.get();
+            while (true) {
+                int i = (int) (pos & mask);
+                long diff = sequence.get(i) - pos;
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        items[i] = item;
+                        sequence.set(i, pos + 1);
+                        return true;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    return false;
+                } else {
+                    pos = head.get();
+                }
+            }
+        }
+
+        Object poll() {
+            long pos = tail;
+            int i = (int) (pos & mask);
+            if (sequence.get(i) != pos + 1) return null;
+            Object item = items[i];
+            items[i] = null;
+            sequence.set(i, pos + items.length);
+            tail = pos + 1;
+            return item;
+        }
+
+        boolean isEmpty() {
+            long pos = tail;
+            return sequence.get((int) (pos & mask)) != pos + 1;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.f_ex;
+
+import javafx.application.Platform;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Компиляция проекта перед запуском компилятором внутри IDE (javax.tools): без
+ * запуска отдельной JVM и без ограничения на длину командной строки. Замечания
+ * идут в панель Problems по мере появления. Если IDE запущена не на JDK, runner
+ * вызывает javac отдельным процессом со списком аргументов в @argfile.
+ */
+final class ProjectCompiler {
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final Consumer<String> log;
+    private final Consumer<Map<Path, List<Problem>>> problems;
+
+    ProjectCompiler(Consumer<String> log, Consumer<Map<Path, List<Problem>>> problems) {
+        this.log = log;
+        this.problems = problems;
+    }
+
+    boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * Компилирует в фоне; onSuccess вызывается в потоке FX, если ошибок нет.
+     *
+     * @param options опции javac (-d, -sourcepath, -cp, ...) без списка файлов
+     */
+    void compile(List<String> options, List<Path> sources, Runnable onSuccess) {
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            Publisher publisher = new Publisher(sources);
+            StringWriter out = new StringWriter();
+            boolean ok;
+            try (StandardJavaFileManager fm = compiler.getStandardFileManager(null, Locale.ENGLISH, StandardCharsets.UTF_8)) {
+                JavaCompiler.CompilationTask task = compiler.getTask(out, fm, publisher, options, null,
+                        fm.getJavaFileObjectsFromPaths(sources));
+                ok = task.call();
+            } catch (IOException | RuntimeException e) {
+                ok = false;
+                out.write("Compiler failed: " + e.getMessage());
+            }
+            boolean success = ok;
+            String extra = out.toString().trim();
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            Platform.runLater(() -> {
+                publisher.publish(true);
+                if (!extra.isEmpty()) log.accept(extra);
+                log.accept("Compilation " + (success ? "finished" : "failed") + " in " + ms + " ms ("
+                        + publisher.errors + " errors, " + publisher.warnings + " warnings)");
+                if (success && onSuccess != null) onSuccess.run();
+            });
+        }, "project-compiler");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Пишет аргументы javac в файл для вызова "javac @file" - обход ограничения
+     * длины командной строки (особенно на Windows).
+     */
+    static Path writeArgFile(Path file, List<String> options, List<Path> sources) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String o : options) sb.append(quote(o)).append('\n');
+        for (Path p : sources) sb.append(quote(p.toString())).append('\n');
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String quote(String arg) {
+        return "\"" + arg.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    // Замечания копятся по файлам и уходят в поток FX не чаще раза за кадр
+    private final class Publisher implements DiagnosticListener<JavaFileObject> {
+        private final Map<Path, List<Problem>> byFile = new LinkedHashMap<>();
+        private final Set<Path> dirty = new LinkedHashSet<>();
+        private final List<String> lines = new ArrayList<>();
+        private boolean posted;
+        private int errors;
+        private int warnings;
+
+        private Publisher(List<Path> sources) {
+            for (Path p : sources) byFile.put(p.normalize().toAbsolutePath(), new ArrayList<>());
+        }
+
+        @Override
+        public synchronized void report(Diagnostic<? extends JavaFileObject> d) {
+            Path file = null;
+            if (d.getSource() != null) {
+                try {
+                    file = Path.of(d.getSource().toUri()).normalize().toAbsolutePath();
+                } catch (RuntimeException ignored) {
+                }
+            }
+            Problem p = DiagnosticsEngine.toProblem(file, d);
+            if ("error".equals(p.kind)) errors++;
+            else if ("warning".equals(p.kind)) warnings++;
+            lines.add(p.toString());
+            if (file != null) {
+                byFile.computeIfAbsent(file, k -> new ArrayList<>()).add(p);
+                dirty.add(file);
+            }
+            if (!posted) {
+                posted = true;
+                Platform.runLater(() -> publish(false));
+            }
+        }
+
+        /** all - в конце компиляции: файлы без замечаний тоже публикуются, чтобы снять старые ошибки. */
+        private void publish(boolean all) {
+            Map<Path, List<Problem>> batch = new LinkedHashMap<>();
+            List<String> text;
+            synchronized (this) {
+                posted = false;
+                for (Path file : all ? byFile.keySet() : dirty) batch.put(file, List.copyOf(byFile.get(file)));
+                dirty.clear();
+                text = new ArrayList<>(lines);
+                lines.clear();
+            }
+            for (String line : text) log.accept(line);
+            if (problems != null && !batch.isEmpty()) problems.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.f_ex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Кэш модели проекта в ~/.f_ex/models. Разрешение модели через Gradle/Maven занимает
+ * десятки секунд, поэтому при открытии проекта сразу берётся сохранённая модель,
+ * а инструмент сборки запускается, только если изменился отпечаток файлов сборки
+ * (build.gradle(.kts), settings.gradle, pom.xml, lock-файлы, версия wrapper)
+ * или из classpath пропали файлы.
+ */
+final class ProjectModelCache {
+    // Меняется вместе с форматом записи или способом разрешения модели
+    private static final String FORMAT = "3";
+    private static final int MAX_DEPTH = 4;
+    private static final Set<String> BUILD_FILES = Set.of(
+            "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts", "gradle.properties",
+            "gradle.lockfile", "settings-gradle.lockfile", "libs.versions.toml", "gradle-wrapper.properties",
+            "pom.xml", "maven-wrapper.properties", "extensions.xml");
+    private static final Set<String> SKIP_DIRS = Set.of("build", "target", "out", "node_modules", ".git", ".gradle", ".idea");
+
+    static final class Entry {
+        final ProjectModelResolver.ProjectModel model;
+        /** Файлы сборки не менялись с момента сохранения - повторно разрешать не нужно. */
+        final boolean fresh;
+
+        private Entry(ProjectModelResolver.ProjectModel model, boolean fresh) {
+            this.model = model;
+            this.fresh = fresh;
+        }
+    }
+
+    private static final class ModuleLines {
+        private final String name;
+        private final Path dir;
+        private final List<Path> sources = new ArrayList<>();
+        private final List<Path> tests = new ArrayList<>();
+        private final List<Path> classpath = new ArrayList<>();
+        private final List<Path> testClasspath = new ArrayList<>();
+        private final List<String> dependsOn = new ArrayList<>();
+
+        private ModuleLines(String name, Path dir) {
+            this.name = name;
+            this.dir = dir;
+        }
+
+        private ProjectModelResolver.Module toModule() {
+            return new ProjectModelResolver.Module(name, dir, sources, tests, classpath, testClasspath, dependsOn);
+        }
+    }
+
+    private final Path dir;
+
+    ProjectModelCache() {
+        this(Paths.get(System.getProperty("user.home")).resolve(".f_ex").resolve("models"));
+    }
+
+    ProjectModelCache(Path dir) {
+        this.dir = dir;
+    }
+
+    static boolean isBuildFile(Path file) {
+        return file != null && file.getFileName() != null && BUILD_FILES.contains(file.getFileName().toString());
+    }
+
+    /** Типы проектов, для которых модель дорого получать и есть смысл кэшировать. */
+    static boolean isCached(ProjectDetector.ProjectType type) {
+        return type == ProjectDetector.ProjectType.GRADLE || type == ProjectDetector.ProjectType.MAVEN;
+    }
+
+    /**
+     * Отпечаток файлов сборки проекта. Считать до разрешения модели: правка во время
+     * работы Gradle/Maven тогда сделает сохранённую запись устаревшей.
+     */
+    String stamp(Path root, ProjectDetector.ProjectType type) throws IOException {
+        MessageDigest md = sha256();
+        md.update((FORMAT + "\n" + type + "\n").getBytes(StandardCharsets.UTF_8));
+        List<Path> files = new ArrayList<>();
+        collect(root, 0, files);
+        files.sort(null);
+        for (Path p : files) {
+            md.update(root.relativize(p).toString().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(Files.readAllBytes(p));
+            md.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /** Сохранённая модель проекта или null, если её нет или запись повреждена. */
+    Entry load(Path root, ProjectDetector.ProjectType type, String stamp) {
+        Path file = fileFor(root, type);
+        if (!Files.exists(file)) return null;
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).startsWith("stamp\t")) return null;
+            List<Path> roots = new ArrayList<>();
+            List<Path> cp = new ArrayList<>();
+            List<ProjectModelResolver.Module> modules = new ArrayList<>();
+            ModuleLines m = null;
+            boolean missing = false;
+            for (String line : lines.subList(1, lines.size())) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) continue;
+                String kind = line.substring(0, tab);
+                String value = line.substring(tab + 1);
+                // Кэш зависимостей Gradle/Maven могли почистить
+                if ((kind.equals("c") || kind.equals("mc") || kind.equals("mx")) && !Files.exists(Path.of(value))) missing = true;
+                switch (kind) {
+                    case "s" -> roots.add(Path.of(value));
+                    case "c" -> cp.add(Path.of(value));
+                    case "m" -> {
+                        if (m != null) modules.add(m.toModule());
+                        int sep = value.indexOf('\t');
+                        m = new ModuleLines(value.substring(0, sep), Path.of(value.substring(sep + 1)));
+                    }
+                    case "ms" -> m.sources.add(Path.of(value));
+                    case "mt" -> m.tests.add(Path.of(value));
+                    case "mc" -> m.classpath.add(Path.of(value));
+                    case "mx" -> m.testClasspath.add(Path.of(value));
+                    case "md" -> m.dependsOn.add(value);
+                    default -> {
+                    }
+                }
+            }
+            if (m != null) modules.add(m.toModule());
+            boolean fresh = !missing && lines.get(0).substring("stamp\t".length()).equals(stamp);
+            ProjectModelResolver.ProjectModel model = modules.isEmpty()
+                    ? new ProjectModelResolver.ProjectModel(roots, cp)
+                    : ProjectModelResolver.ProjectModel.ofModules(modules);
+            return new Entry(model, fresh);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Только полная модель: неполная со штампом текущих файлов сборки считалась бы свежей. */
+    void store(Path root, ProjectDetector.ProjectType type, String stamp, ProjectModelResolver.ProjectModel model) throws IOException {
+        if (!model.complete) throw new IllegalArgumentException("incomplete project model");
+        StringBuilder sb = new StringBuilder("stamp\t").append(stamp).append('\n');
+        if (model.modules.isEmpty()) {
+            for (Path p : model.sourceRoots) sb.append("s\t").append(p).append('\n');
+            for (Path p : model.classpath) sb.append("c\t").append(p).append('\n');
+        }
+        for (ProjectModelResolver.Module m : model.modules) {
+            sb.append("m\t").append(m.name).append('\t').append(m.dir).append('\n');
+            for (Path p : m.sourceRoots) sb.append("ms\t").append(p).append('\n');
+            for (Path p : m.testRoots) sb.append("mt\t").append(p).append('\n');
+            for (Path p : m.classpath) sb.append("mc\t").append(p).append('\n');
+            for (Path p : m.testClasspath) sb.append("mx\t").append(p).append('\n');
+            for (String d : m.dependsOn) sb.append("md\t").append(d).append('\n');
+        }
+        Path file = fileFor(root, type);
+        Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void collect(Path dir, int depth, List<Path> out) throws IOException {
+        List<Path> children;
+        try (Stream<Path> s = Files.list(dir)) {
+            children = s.toList();
+        }
+        for (Path p : children) {
+            String name = p.getFileName().toString();
+            if (Files.isDirectory(p)) {
+                // .mvn и gradle/ содержат версии wrapper, остальные служебные каталоги пропускаем
+                if (depth < MAX_DEPTH && !SKIP_DIRS.contains(name)) collect(p, depth + 1, out);
+            } else if (BUILD_FILES.contains(name)) {
+                out.add(p);
+            }
+        }
+    }
+
+    private Path fileFor(Path root, ProjectDetector.ProjectType type) {
+        String key = root.toAbsolutePath().normalize() + "\n" + type;
+        String hash = HexFormat.of().formatHex(sha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+        return dir.resolve(hash.substring(0, 16) + ".model");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
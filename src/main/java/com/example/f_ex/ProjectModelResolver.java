@@ -1,26 +1,206 @@
 package com.example.f_ex;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class ProjectModelResolver {
+    /** Модуль сборки: подпроект Gradle или модуль Maven. */
+    static final class Module {
+        /** Gradle - путь проекта (":app"), Maven - artifactId. */
+        final String name;
+        final Path dir;
+        final List<Path> sourceRoots;
+        final List<Path> testRoots;
+        final List<Path> classpath;
+        /** Только то, чего нет в classpath. */
+        final List<Path> testClasspath;
+        /** Имена модулей, от которых зависит этот. */
+        final List<String> dependsOn;
+
+        Module(String name, Path dir, List<Path> sourceRoots, List<Path> testRoots,
+               List<Path> classpath, List<Path> testClasspath, List<String> dependsOn) {
+            this.name = name;
+            this.dir = dir;
+            this.sourceRoots = sourceRoots;
+            this.testRoots = testRoots;
+            this.classpath = classpath;
+            this.testClasspath = testClasspath;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    /**
+     * Модель проекта. sourceRoots и classpath - объединение по всем модулям; проверка
+     * конкретного файла идёт с {@link #scopeFor(Path)}: только его модуль и модули,
+     * от которых он зависит.
+     */
     static final class ProjectModel {
         final List<Path> sourceRoots;
         final List<Path> classpath;
+        final List<Module> modules;
+        /**
+         * false - разрешение не удалось и модель собрана из того, что было (корни исходников
+         * без classpath, classpath без недостающих артефактов). Ею можно пользоваться,
+         * но сохранять в кэш нельзя: иначе до смены файлов сборки она считалась бы свежей.
+         */
+        final boolean complete;
+
+        private String fingerprint;
+        private final Map<String, ProjectModel> scopes = new ConcurrentHashMap<>();
 
         ProjectModel(List<Path> sourceRoots, List<Path> classpath) {
+            this(sourceRoots, classpath, List.of(), true);
+        }
+
+        private ProjectModel(List<Path> sourceRoots, List<Path> classpath, List<Module> modules, boolean complete) {
             this.sourceRoots = sourceRoots;
             this.classpath = classpath;
+            this.modules = modules;
+            this.complete = complete;
+        }
+
+        static ProjectModel ofModules(List<Module> modules) {
+            Set<Path> roots = new LinkedHashSet<>();
+            Set<Path> cp = new LinkedHashSet<>();
+            for (Module m : modules) {
+                roots.addAll(m.sourceRoots);
+                cp.addAll(m.classpath);
+            }
+            return new ProjectModel(new ArrayList<>(roots), new ArrayList<>(cp), List.copyOf(modules), true);
+        }
+
+        /** Та же модель, помеченная как неполная. */
+        ProjectModel incomplete() {
+            return new ProjectModel(sourceRoots, classpath, modules, false);
+        }
+
+        /** Модуль, которому принадлежит файл: сначала по корням исходников, затем по каталогу. */
+        Module moduleOf(Path file) {
+            Path f = file.toAbsolutePath().normalize();
+            Module best = null;
+            int bestDepth = -1;
+            for (Module m : modules) {
+                for (List<Path> roots : List.of(m.sourceRoots, m.testRoots)) {
+                    for (Path r : roots) {
+                        if (f.startsWith(r) && r.getNameCount() > bestDepth) {
+                            best = m;
+                            bestDepth = r.getNameCount();
+                        }
+                    }
+                }
+            }
+            if (best != null) return best;
+            for (Module m : modules) {
+                if (m.dir != null && f.startsWith(m.dir) && m.dir.getNameCount() > bestDepth) {
+                    best = m;
+                    bestDepth = m.dir.getNameCount();
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Модель для проверки файла: корни и classpath его модуля (для тестов - вместе
+         * с тестовыми) и всех модулей, от которых тот зависит. Без модулей - вся модель.
+         */
+        ProjectModel scopeFor(Path file) {
+            if (file == null || modules.isEmpty()) return this;
+            Module module = moduleOf(file);
+            if (module == null) return this;
+            Path f = file.toAbsolutePath().normalize();
+            boolean test = module.testRoots.stream().anyMatch(f::startsWith);
+            return scopes.computeIfAbsent(module.name + (test ? "#test" : ""), k -> scope(module, test));
+        }
+
+        /** Сама модель и модели всех модулей (основные и тестовые), какие выдаёт scopeFor. */
+        List<ProjectModel> moduleScopes() {
+            List<ProjectModel> out = new ArrayList<>();
+            out.add(this);
+            for (Module m : modules) {
+                out.add(scopes.computeIfAbsent(m.name, k -> scope(m, false)));
+                out.add(scopes.computeIfAbsent(m.name + "#test", k -> scope(m, true)));
+            }
+            return out;
+        }
+
+        private ProjectModel scope(Module module, boolean test) {
+            Map<String, Module> byName = new HashMap<>();
+            for (Module m : modules) byName.put(m.name, m);
+            Set<Path> roots = new LinkedHashSet<>(module.sourceRoots);
+            Set<Path> cp = new LinkedHashSet<>(module.classpath);
+            if (test) {
+                roots.addAll(module.testRoots);
+                cp.addAll(module.testClasspath);
+            }
+            Set<String> seen = new HashSet<>();
+            Deque<String> queue = new ArrayDeque<>(module.dependsOn);
+            while (!queue.isEmpty()) {
+                Module dep = byName.get(queue.poll());
+                if (dep == null || dep == module || !seen.add(dep.name)) continue;
+                roots.addAll(dep.sourceRoots);
+                cp.addAll(dep.classpath);
+                queue.addAll(dep.dependsOn);
+            }
+            return new ProjectModel(new ArrayList<>(roots), new ArrayList<>(cp));
+        }
+
+        /** SHA-256 от sourceRoots, classpath и модулей в hex; у равных моделей отпечатки совпадают. */
+        synchronized String fingerprint() {
+            if (fingerprint == null) {
+                StringBuilder sb = new StringBuilder();
+                for (Path p : sourceRoots) sb.append("s:").append(p).append('\n');
+                for (Path p : classpath) sb.append("c:").append(p).append('\n');
+                for (Module m : modules) {
+                    sb.append("m:").append(m.name).append('\t').append(m.dir).append('\n');
+                    for (Path p : m.sourceRoots) sb.append("ms:").append(p).append('\n');
+                    for (Path p : m.testRoots) sb.append("mt:").append(p).append('\n');
+                    for (Path p : m.classpath) sb.append("mc:").append(p).append('\n');
+                    for (Path p : m.testClasspath) sb.append("mx:").append(p).append('\n');
+                    for (String d : m.dependsOn) sb.append("md:").append(d).append('\n');
+                }
+                try {
+                    byte[] hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+                    fingerprint = HexFormat.of().formatHex(hash);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return fingerprint;
         }
     }
 
+    private final GradleConnections gradle;
+    // Один на все проекты: разобранные POM из ~/.m2 общие
+    private final MavenPomResolver pomResolver = new MavenPomResolver();
+
+    ProjectModelResolver() {
+        this(null);
+    }
+
+    ProjectModelResolver(GradleConnections gradle) {
+        this.gradle = gradle;
+    }
+
     ProjectModel resolve(Path projectRoot, ProjectDetector.ProjectType type) {
         if (projectRoot == null) return new ProjectModel(List.of(), List.of());
 
@@ -34,13 +214,17 @@ final class ProjectModelResolver {
     }
 
     private ProjectModel resolvePlainJava(Path root) {
+        return new ProjectModel(plainSourceRoots(root), List.of());
+    }
+
+    private static List<Path> plainSourceRoots(Path root) {
         List<Path> src = new ArrayList<>();
         Path a = root.resolve("src").resolve("main").resolve("java");
         if (Files.isDirectory(a)) src.add(a);
         Path b = root.resolve("src");
         if (Files.isDirectory(b) && src.isEmpty()) src.add(b);
         if (src.isEmpty()) src.add(root);
-        return new ProjectModel(src, List.of());
+        return src;
     }
 
     private ProjectModel resolveIntelliJ(Path root) {
@@ -49,15 +233,26 @@ final class ProjectModelResolver {
     }
 
     private ProjectModel resolveGradle(Path root) {
+        if (gradle != null) {
+            try {
+                List<Module> modules = gradle.modules(root);
+                return modules.isEmpty() ? resolvePlainJava(root) : ProjectModel.ofModules(modules);
+            } catch (GradleConnections.UnavailableException e) {
+                // ниже - прежний путь через gradlew и init script
+            } catch (RuntimeException e) {
+                // Сборка не конфигурируется - gradlew упал бы так же
+                return resolvePlainJava(root).incomplete();
+            }
+        }
         Path gradlewBat = root.resolve("gradlew.bat");
         Path gradlew = root.resolve("gradlew");
         boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
         List<String> cmd = new ArrayList<>();
         if (isWindows && Files.exists(gradlewBat)) cmd.addAll(List.of("cmd.exe", "/c", gradlewBat.toString()));
         else if (Files.exists(gradlew)) cmd.add(gradlew.toString());
-        else return resolvePlainJava(root);
+        else return resolvePlainJava(root).incomplete();
 
-        // init script prints main compile classpath + runtime classpath + source roots
+        // init script prints one IDE_MODULE line per project: path, dir, sources, tests, classpath, test classpath, project deps
         String initScript = """
                 allprojects {
                   tasks.register("idePrintModel") {
@@ -65,29 +260,67 @@ final class ProjectModelResolver {
                       def hasJava = project.extensions.findByName("java") != null
                       if (!hasJava) return
                       def ss = project.sourceSets
-                      def srcs = ss.main.java.srcDirs.collect { it.absolutePath }.findAll { it != null }
-                      println("IDE_SRCS=" + srcs.join(File.pathSeparator))
-                      def cp = (ss.main.compileClasspath + ss.main.runtimeClasspath).files.collect { it.absolutePath }.unique()
-                      println("IDE_CP=" + cp.join(File.pathSeparator))
+                      def paths = { files -> files.collect { it.absolutePath }.unique().join(File.pathSeparator) }
+                      def cp = (ss.main.compileClasspath + ss.main.runtimeClasspath).files
+                      def testCp = ss.test.compileClasspath.files - cp
+                      def deps = project.configurations.compileClasspath.allDependencies
+                          .withType(ProjectDependency).collect { it.name }.unique()
+                      println("IDE_MODULE=" + [project.path, project.projectDir.absolutePath,
+                          paths(ss.main.java.srcDirs), paths(ss.test.java.srcDirs), paths(cp), paths(testCp),
+                          deps.join(",")].join("\\t"))
                     }
                   }
                 }
                 """;
 
         try {
-            Path tmp = Files.createTempFile("f_ex_ide_init", ".gradle");
-            Files.writeString(tmp, initScript, StandardCharsets.UTF_8);
+            Path script = initScript(initScript);
 
             List<String> full = new ArrayList<>(cmd);
-            full.addAll(List.of("-q", "-I", tmp.toString(), "idePrintModel"));
+            full.addAll(List.of("-q", "-I", script.toString(), "idePrintModel"));
             String out = runAndCapture(full, root);
             return parseModelFromToolOutput(out, root);
         } catch (Exception e) {
-            return resolvePlainJava(root);
+            return resolvePlainJava(root).incomplete();
         }
     }
 
+    /**
+     * Init script лежит по постоянному пути ~/.f_ex/init и переписывается только при
+     * изменении текста: временный файл на каждый запуск засорял tmp.
+     */
+    private static Path initScript(String text) throws IOException {
+        Path file = Paths.get(System.getProperty("user.home")).resolve(".f_ex").resolve("init").resolve("ide-model.gradle");
+        if (Files.isRegularFile(file) && text.equals(Files.readString(file, StandardCharsets.UTF_8))) return file;
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling("ide-model.gradle.tmp");
+        Files.writeString(tmp, text, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
     private ProjectModel resolveMaven(Path root) {
+        List<MavenPomResolver.Result> reactor = pomResolver.resolveReactor(root);
+        boolean missing = reactor.stream().anyMatch(r -> !r.missing.isEmpty());
+        // Чего-то нет в локальном репозитории - пусть Maven скачает и посчитает сам
+        Map<Path, List<Path>> viaMaven = missing ? resolveMavenWithMaven(root, reactor) : Map.of();
+        List<Module> modules = new ArrayList<>();
+        boolean complete = true;
+        for (MavenPomResolver.Result r : reactor) {
+            // Недостающее не досчитал и Maven - в classpath модуля дыры
+            if (!r.missing.isEmpty() && !viaMaven.containsKey(r.dir)) complete = false;
+            List<Path> src = Files.isDirectory(r.sourceRoot) ? List.of(r.sourceRoot)
+                    : reactor.size() == 1 ? plainSourceRoots(root) : List.of();
+            List<Path> tests = Files.isDirectory(r.testRoot) ? List.of(r.testRoot) : List.of();
+            List<Path> cp = viaMaven.getOrDefault(r.dir, r.classpath);
+            modules.add(new Module(r.name, r.dir, src, tests, cp, r.testClasspath, r.dependsOn));
+        }
+        ProjectModel model = ProjectModel.ofModules(modules);
+        return complete ? model : model.incomplete();
+    }
+
+    /** Classpath каждого модуля через dependency:build-classpath; пустая карта, если Maven не отработал. */
+    private Map<Path, List<Path>> resolveMavenWithMaven(Path root, List<MavenPomResolver.Result> reactor) {
         boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
         Path mvnwBat = root.resolve("mvnw.cmd");
         Path mvnw = root.resolve("mvnw");
@@ -98,33 +331,33 @@ final class ProjectModelResolver {
         else if (isWindows) cmd.addAll(List.of("cmd.exe", "/c", "mvn.cmd"));
         else cmd.add("mvn");
 
-        // dependency:build-classpath prints cp; also add target/classes for already-compiled
+        // Classpath пишется в файл: в выводе он мог смешаться с логом или оказаться без разделителей.
+        // Относительный путь Maven разрешает от каталога каждого модуля реактора.
+        String outFile = "target/f_ex-classpath.txt";
         List<String> full = new ArrayList<>(cmd);
         full.addAll(List.of(
                 "-q",
                 "-DincludeScope=compile",
+                "-Dmdep.outputFile=" + outFile,
                 "-Dmdep.pathSeparator=" + java.io.File.pathSeparator,
                 "dependency:build-classpath"
         ));
         try {
-            String out = runAndCapture(full, root);
-            List<Path> src = resolvePlainJava(root).sourceRoots;
-            List<Path> cp = new ArrayList<>();
-            for (String line : out.split("\\R")) {
-                String l = line.trim();
-                if (l.isEmpty()) continue;
-                // maven may output the classpath as a single long line
-                if (l.contains(java.io.File.pathSeparator)) {
-                    for (String part : l.split(java.util.regex.Pattern.quote(java.io.File.pathSeparator))) {
-                        if (!part.isBlank()) cp.add(Path.of(part.trim()));
-                    }
-                    break;
-                }
-            }
-            return new ProjectModel(src, cp);
+            runAndCapture(full, root);
         } catch (Exception e) {
-            return resolvePlainJava(root);
+            return Map.of();
+        }
+        Map<Path, List<Path>> result = new HashMap<>();
+        for (MavenPomResolver.Result r : reactor) {
+            Path file = r.dir.resolve(outFile);
+            try {
+                if (!Files.isRegularFile(file)) continue;
+                result.put(r.dir, splitPaths(Files.readString(file, StandardCharsets.UTF_8).trim()));
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
         }
+        return result;
     }
 
     private static String runAndCapture(List<String> cmd, Path dir) throws Exception {
@@ -144,28 +377,36 @@ final class ProjectModelResolver {
     }
 
     private static ProjectModel parseModelFromToolOutput(String out, Path root) {
-        String srcs = null;
-        String cp = null;
+        List<String[]> rows = new ArrayList<>();
+        Map<String, String> pathByName = new HashMap<>();
         for (String line : out.split("\\R")) {
-            if (line.startsWith("IDE_SRCS=")) srcs = line.substring("IDE_SRCS=".length()).trim();
-            if (line.startsWith("IDE_CP=")) cp = line.substring("IDE_CP=".length()).trim();
+            if (!line.startsWith("IDE_MODULE=")) continue;
+            String[] f = line.substring("IDE_MODULE=".length()).split("\t", -1);
+            if (f.length != 7) continue;
+            rows.add(f);
+            String name = f[0].substring(f[0].lastIndexOf(':') + 1);
+            pathByName.putIfAbsent(name.isEmpty() ? Path.of(f[1]).getFileName().toString() : name, f[0]);
         }
-        List<Path> sourceRoots = new ArrayList<>();
-        if (srcs != null && !srcs.isBlank()) {
-            for (String s : srcs.split(java.util.regex.Pattern.quote(java.io.File.pathSeparator))) {
-                if (!s.isBlank()) sourceRoots.add(Path.of(s.trim()));
+        List<Module> modules = new ArrayList<>();
+        for (String[] f : rows) {
+            // В скрипте известны только имена проектов-зависимостей, переводим их в пути
+            List<String> deps = new ArrayList<>();
+            for (String d : f[6].split(",")) {
+                if (!d.isBlank()) deps.add(pathByName.getOrDefault(d.trim(), d.trim()));
             }
+            modules.add(new Module(f[0], Path.of(f[1]).toAbsolutePath().normalize(), splitPaths(f[2]), splitPaths(f[3]),
+                    splitPaths(f[4]), splitPaths(f[5]), deps));
         }
-        if (sourceRoots.isEmpty()) sourceRoots.addAll(new ProjectModelResolver().resolvePlainJava(root).sourceRoots);
+        // Ни одной строки модели - скрипт не отработал (ошибка конфигурации, нет сети)
+        if (modules.isEmpty()) return new ProjectModelResolver().resolvePlainJava(root).incomplete();
+        return ProjectModel.ofModules(modules);
+    }
 
-        List<Path> classpath = new ArrayList<>();
-        if (cp != null && !cp.isBlank()) {
-            for (String s : cp.split(java.util.regex.Pattern.quote(java.io.File.pathSeparator))) {
-                if (!s.isBlank()) classpath.add(Path.of(s.trim()));
-            }
+    private static List<Path> splitPaths(String joined) {
+        List<Path> out = new ArrayList<>();
+        for (String s : joined.split(java.util.regex.Pattern.quote(java.io.File.pathSeparator))) {
+            if (!s.isBlank()) out.add(Path.of(s.trim()).toAbsolutePath().normalize());
         }
-        classpath = classpath.stream().filter(Objects::nonNull).distinct().toList();
-        return new ProjectModel(sourceRoots, classpath);
+        return out.stream().filter(Objects::nonNull).distinct().toList();
     }
 }
-
@@ -0,0 +1,290 @@
+package com.example.f_ex;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Запущенные программы. У каждой сессии своя вкладка в нижней панели с консолью,
+ * вводом в stdin, кодом завершения, временем работы и потреблением CPU/памяти.
+ * Вывод каждой программы идёт в отдельный канал ProcessService, поэтому сервер и
+ * клиент, запущенные рядом, не перемешиваются в одной консоли. Используется из FX-потока.
+ */
+final class RunSessionManager {
+    private static final long SAMPLE_MILLIS = 1000;
+
+    /** Одна запущенная программа. */
+    static final class RunSession {
+        private final String name;
+        private final ConsoleView console = new ConsoleView();
+        private final Label statsLabel = new Label();
+        private final Button stopButton = new Button("Stop");
+        private final Tab tab;
+        private final long startNanos = System.nanoTime();
+        private ProcessService.Job job;
+        private long endNanos;
+        private Integer exitCode;
+        // Последний замер, пишется потоком статистики
+        private volatile long cpuNanos = -1;
+        private volatile long rssBytes = -1;
+        private long lastCpuNanos = -1;
+        private long lastSampleNanos;
+        private double cpuLoad = -1;
+
+        private RunSession(String name) {
+            this.name = name;
+            stopButton.setOnAction(e -> stop());
+            HBox bar = new HBox(8, statsLabel, stopButton);
+            bar.setAlignment(Pos.CENTER_LEFT);
+            bar.setPadding(new Insets(2, 8, 2, 8));
+            BorderPane content = new BorderPane(console);
+            content.setTop(bar);
+            tab = new Tab(name, content);
+            console.setOnInput(this::sendFromConsole);
+        }
+
+        String name() { return name; }
+        ConsoleView console() { return console; }
+        boolean isRunning() { return exitCode == null; }
+        /** null, пока процесс выполняется. */
+        Integer exitCode() { return exitCode; }
+
+        Duration elapsed() {
+            return Duration.ofNanos((exitCode == null ? System.nanoTime() : endNanos) - startNanos);
+        }
+
+        /** Суммарное процессорное время процесса и его потомков; null, если ОС его не сообщает. */
+        Duration cpuTime() {
+            long cpu = cpuNanos;
+            return cpu < 0 ? null : Duration.ofNanos(cpu);
+        }
+
+        /** Резидентная память процесса и его потомков в байтах; -1, если недоступна. */
+        long residentBytes() {
+            return rssBytes;
+        }
+
+        /** Отправляет строку в stdin процесса. */
+        void send(String line) throws IOException {
+            if (!isRunning()) throw new IOException(name + " is not running");
+            OutputStream in = job.stdin();
+            in.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+            in.flush();
+            console.append(line);
+        }
+
+        void stop() {
+            if (isRunning()) job.cancel();
+        }
+
+        private void sendFromConsole(String line) {
+            try {
+                send(line);
+            } catch (IOException e) {
+                console.append("Failed to send input: " + e.getMessage());
+            }
+        }
+
+        private void finished(int code) {
+            endNanos = System.nanoTime();
+            exitCode = code;
+            console.append("Process finished with exit code: " + code);
+            stopButton.setDisable(true);
+            tab.setText(name + " [" + code + "]");
+            updateStats();
+        }
+
+        /** Сэмпл в потоке статистики: ProcessHandle и /proc читаются вне FX-потока. */
+        private void sample() {
+            ProcessHandle root = job.process().toHandle();
+            List<ProcessHandle> tree = new ArrayList<>();
+            tree.add(root);
+            root.descendants().forEach(tree::add);
+            long cpu = 0;
+            long rss = 0;
+            boolean cpuKnown = false;
+            for (ProcessHandle h : tree) {
+                var total = h.info().totalCpuDuration();
+                if (total.isPresent()) {
+                    cpu += total.get().toNanos();
+                    cpuKnown = true;
+                }
+                long r = residentMemory(h.pid());
+                if (r < 0) {
+                    rss = -1;
+                } else if (rss >= 0) {
+                    rss += r;
+                }
+            }
+            cpuNanos = cpuKnown ? cpu : -1;
+            rssBytes = rss;
+        }
+
+        private void updateStats() {
+            long now = System.nanoTime();
+            long cpu = cpuNanos;
+            if (cpu >= 0 && lastCpuNanos >= 0 && now > lastSampleNanos) {
+                cpuLoad = (double) (cpu - lastCpuNanos) / (now - lastSampleNanos);
+            }
+            lastCpuNanos = cpu;
+            lastSampleNanos = now;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(isRunning() ? "Running" : "Exited with code " + exitCode)
+              .append(" | PID ").append(job.process().pid())
+              .append(" | ").append(formatDuration(elapsed()));
+            if (cpu >= 0) {
+                sb.append(" | CPU ").append(String.format("%.1f s", cpu / 1e9));
+                if (isRunning() && cpuLoad >= 0) sb.append(String.format(" (%.0f%%)", cpuLoad * 100));
+            }
+            long rss = rssBytes;
+            if (rss >= 0) sb.append(" | RSS ").append(rss / (1024 * 1024)).append(" MB");
+            statsLabel.setText(sb.toString());
+        }
+    }
+
+    private final TabPane tabs;
+    private final ProcessService processes;
+    private final List<RunSession> sessions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "run-session-stats");
+        t.setDaemon(true);
+        return t;
+    });
+    private int maxLines = ConsoleView.DEFAULT_MAX_LINES;
+    private String fontFamily;
+    private int fontSize;
+
+    /** tabs - панель, куда добавляются вкладки сессий. */
+    RunSessionManager(TabPane tabs, ProcessService processes) {
+        this.tabs = tabs;
+        this.processes = processes;
+        sampler.scheduleWithFixedDelay(this::sampleAll, SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Запускает программу в новой сессии и открывает её вкладку. Завершённая
+     * сессия с тем же именем закрывается - повторный запуск не плодит вкладки.
+     *
+     * @param env    дополнительные переменные окружения или null
+     * @param onExit код завершения, после всего вывода процесса
+     */
+    RunSession start(String name, List<String> command, Path directory, Map<String, String> env,
+                     IntConsumer onExit) throws IOException {
+        RunSession session = new RunSession(name);
+        session.console.setMaxLines(maxLines);
+        if (fontFamily != null) session.console.setFont(fontFamily, fontSize);
+        session.job = processes.start(name, command, directory, env, session.console::appendLines, code -> {
+            session.finished(code);
+            if (onExit != null) onExit.accept(code);
+        });
+        for (RunSession old : sessions) {
+            if (!old.isRunning() && old.name.equals(name)) close(old);
+        }
+        session.tab.setOnClosed(e -> {
+            session.stop();
+            sessions.remove(session);
+        });
+        sessions.add(session);
+        session.updateStats();
+        tabs.getTabs().add(session.tab);
+        tabs.getSelectionModel().select(session.tab);
+        return session;
+    }
+
+    List<RunSession> sessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    /** Сессия открытой вкладки, иначе последняя из работающих; null - ничего не запущено. */
+    RunSession active() {
+        Tab selected = tabs.getSelectionModel().getSelectedItem();
+        RunSession last = null;
+        for (RunSession s : sessions) {
+            if (s.tab == selected) return s;
+            if (s.isRunning()) last = s;
+        }
+        return last;
+    }
+
+    void setMaxLines(int maxLines) {
+        this.maxLines = maxLines;
+        for (RunSession s : sessions) s.console.setMaxLines(maxLines);
+    }
+
+    void setFont(String fontFamily, int fontSize) {
+        this.fontFamily = fontFamily;
+        this.fontSize = fontSize;
+        for (RunSession s : sessions) s.console.setFont(fontFamily, fontSize);
+    }
+
+    void shutdown() {
+        sampler.shutdownNow();
+        for (RunSession s : sessions) s.stop();
+    }
+
+    private void close(RunSession session) {
+        sessions.remove(session);
+        tabs.getTabs().remove(session.tab);
+    }
+
+    private void sampleAll() {
+        List<RunSession> running = new ArrayList<>();
+        for (RunSession s : sessions) {
+            if (s.job != null && s.job.isAlive()) {
+                try {
+                    s.sample();
+                } catch (RuntimeException ignored) {
+                    // Процесс мог завершиться во время замера
+                }
+                running.add(s);
+            }
+        }
+        // Одно обновление на все сессии, а не runLater на каждую
+        if (!running.isEmpty()) Platform.runLater(() -> running.forEach(RunSession::updateStats));
+    }
+
+    /** VmRSS из /proc (Linux); на других ОС без внешних утилит память не узнать. */
+    private static long residentMemory(long pid) {
+        Path status = Paths.get("/proc", Long.toString(pid), "status");
+        if (!Files.isReadable(status)) return -1;
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] parts = line.substring(6).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // Процесс завершился между проверкой и чтением
+        }
+        return -1;
+    }
+
+    private static String formatDuration(Duration d) {
+        long s = d.getSeconds();
+        return String.format("%02d:%02d:%02d", s / 3600, (s / 60) % 60, s % 60);
+    }
+}
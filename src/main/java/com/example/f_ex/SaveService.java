@@ -0,0 +1,133 @@
+package com.example.f_ex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая запись файлов редактора. Каждый файл пишется во временный файл рядом
+ * с целевым и заменяет его атомарным переносом, поэтому сбой посреди записи
+ * не оставляет обрезанный файл. Запросы копятся в очереди и пишутся одним проходом;
+ * повторный запрос для того же пути заменяет ещё не записанный.
+ */
+final class SaveService {
+    interface Callback {
+        /** Вызывается в потоке записи; error == null при успехе. */
+        void done(Path path, IOException error);
+    }
+
+    private static final class Pending {
+        private final String text;
+        private final Callback callback;
+
+        private Pending(String text, Callback callback) {
+            this.text = text;
+            this.callback = callback;
+        }
+    }
+
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+    private final ThreadPoolExecutor writer;
+    private boolean drainScheduled;
+
+    SaveService() {
+        // Поток не daemon: начатая запись успевает завершиться при выходе, простаивающий поток завершается сам
+        writer = new ThreadPoolExecutor(1, 1, 2, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "save-writer");
+            t.setDaemon(false);
+            return t;
+        });
+        writer.allowCoreThreadTimeOut(true);
+    }
+
+    /** Ставит пачку файлов в очередь; все они будут записаны одним проходом потока записи. */
+    void saveAll(Map<Path, String> texts, Callback callback) {
+        if (texts.isEmpty()) return;
+        synchronized (pending) {
+            for (Map.Entry<Path, String> e : texts.entrySet()) {
+                pending.put(e.getKey().normalize().toAbsolutePath(), new Pending(e.getValue(), callback));
+            }
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+        writer.execute(this::drain);
+    }
+
+    private void drain() {
+        Map<Path, Pending> batch;
+        synchronized (pending) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            drainScheduled = false;
+        }
+        for (Map.Entry<Path, Pending> e : batch.entrySet()) {
+            IOException error = null;
+            try {
+                writeAtomically(e.getKey(), e.getValue().text);
+            } catch (IOException ex) {
+                error = ex;
+            }
+            if (e.getValue().callback != null) e.getValue().callback.done(e.getKey(), error);
+        }
+    }
+
+    static void writeAtomically(Path target, String text) throws IOException {
+        // Через симлинк пишем в сам файл: перенос поверх ссылки заменил бы её обычным файлом
+        Path real = Files.exists(target) ? target.toRealPath() : target.toAbsolutePath();
+        Path dir = real.getParent();
+        Files.createDirectories(dir);
+        Path tmp = createTempNear(dir, real.getFileName().toString());
+        try {
+            copyPermissions(real, tmp);
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(true);
+            }
+            try {
+                Files.move(tmp, real, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, real, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Files.createTempFile создаёт файл с правами 0600, и после переноса они достались бы
+     * сохранённому файлу. createFile без атрибутов даёт обычные права с учётом umask.
+     */
+    private static Path createTempNear(Path dir, String name) throws IOException {
+        while (true) {
+            Path tmp = dir.resolve("." + name + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(tmp);
+            } catch (FileAlreadyExistsException ignored) {
+                // Имя занято - пробуем другое
+            }
+        }
+    }
+
+    /** Права существующего файла переходят к временному, чтобы перенос их не сбросил (+x, чтение группой). */
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (!Files.exists(from)) return;
+        if (Files.getFileStore(to).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        }
+    }
+}
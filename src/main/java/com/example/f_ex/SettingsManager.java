@@ -80,6 +80,10 @@ public class SettingsManager {
     public static final String KEY_FONT_SIZE = "font.size";
     public static final String KEY_AUTO_COMPLETE = "auto.complete.enabled";
     public static final String KEY_AUTO_COMPLETE_DELAY = "auto.complete.delay";
+    public static final String KEY_AUTOSAVE = "autosave.enabled";
+    public static final String KEY_AUTOSAVE_DELAY = "autosave.delay";
+    public static final String KEY_ANNOTATION_PROCESSING = "diagnostics.annotation.processing";
+    public static final String KEY_CONSOLE_MAX_LINES = "console.max.lines";
     
     public static final String THEME_LIGHT = "light";
     public static final String THEME_DARK = "dark";
@@ -0,0 +1,152 @@
+package com.example.f_ex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Сборка и запуск исходников без системы сборки (папка с .java, проект IntelliJ IDEA):
+ * инкрементальный план {@link IncrementalBuild}, компиляция в процессе IDE через
+ * {@link ProjectCompiler} или отдельный javac, если IDE запущена на JRE, и запуск
+ * собранной программы. Общая часть JavaProjectRunner и IntelliJProjectRunner.
+ */
+final class SourceBuild {
+    private final String jobName;
+    private final Consumer<String> log;
+    private final Runnable statusUpdate;
+    private final Consumer<Process> processCallback;
+    private final ProjectCompiler compiler;
+    private final ProcessService processes;
+    private final RunSessionManager sessions;
+
+    /**
+     * jobName - имя канала ProcessService для javac и программ без сессии;
+     * processes - общий сервис процессов IDE (null - свой, с выводом в log);
+     * sessions - запущенная программа получает свою сессию с консолью (null - вывод в log).
+     */
+    SourceBuild(String jobName, Consumer<String> log, Runnable statusUpdate, Consumer<Process> processCallback,
+                Consumer<Map<Path, List<Problem>>> problems, ProcessService processes, RunSessionManager sessions) {
+        this.jobName = jobName;
+        this.log = log;
+        this.statusUpdate = statusUpdate;
+        this.processCallback = processCallback;
+        this.compiler = new ProjectCompiler(log, problems);
+        this.processes = processes != null ? processes : new ProcessService(lines -> lines.forEach(log));
+        this.sessions = sessions;
+    }
+
+    /**
+     * Компилирует изменённое с прошлой сборки в classesDir и вызывает onBuilt в FX-потоке.
+     * Обход и хэширование исходников идут в фоне.
+     *
+     * @param classpath    classpath javac; classesDir должен входить в него - неизменённые
+     *                     классы берутся из прошлой сборки
+     * @param extraOptions дополнительные опции javac (например, --module-path для JavaFX)
+     */
+    void build(Path projectRoot, Path sourceRoot, Path classesDir, String classpath,
+               List<String> extraOptions, Runnable onBuilt) {
+        List<String> options = new ArrayList<>();
+        options.add("-encoding");
+        options.add("UTF-8");
+        options.add("-d");
+        options.add(classesDir.toString());
+        options.add("-sourcepath");
+        options.add(sourceRoot.toString());
+        options.add("-cp");
+        options.add(classpath);
+        options.addAll(extraOptions);
+
+        IncrementalBuild build = new IncrementalBuild(sourceRoot, classesDir);
+        build.planInBackground(String.join(" ", options), log,
+                plan -> compile(projectRoot, classesDir, options, build, plan, onBuilt));
+    }
+
+    private void compile(Path projectRoot, Path classesDir, List<String> options,
+                         IncrementalBuild build, IncrementalBuild.Plan plan, Runnable onBuilt) {
+        if (plan.upToDate()) {
+            log.accept("Build is up to date (" + plan.total + " files), skipping javac");
+            onBuilt.run();
+            return;
+        }
+        if (!plan.full) {
+            log.accept("Incremental build: compiling " + plan.toCompile.size() + " of " + plan.total + " files");
+        }
+        Runnable onCompiled = () -> {
+            try {
+                build.commit(plan);
+            } catch (IOException e) {
+                log.accept("Failed to save build state: " + e.getMessage());
+            }
+            onBuilt.run();
+        };
+        statusUpdate.run();
+        if (compiler.isAvailable()) {
+            log.accept("Compiling " + plan.toCompile.size() + " files in-process into " + classesDir);
+            compiler.compile(options, plan.toCompile, onCompiled);
+            return;
+        }
+        // Нет системного компилятора (IDE запущена на JRE) - отдельный javac, аргументы в файле
+        Path argFile;
+        try {
+            argFile = ProjectCompiler.writeArgFile(classesDir.resolveSibling("javac.args"), options, plan.toCompile);
+        } catch (IOException e) {
+            log.accept("Failed to write javac arguments: " + e.getMessage());
+            return;
+        }
+        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
+        List<String> javacLine = List.of(isWindows ? "javac.exe" : "javac", "@" + argFile);
+        log.accept("$ " + String.join(" ", javacLine));
+        runCommand(javacLine, projectRoot, onCompiled, null);
+    }
+
+    /** Запуск самой программы: в отдельной сессии со своей консолью, если IDE их ведёт. */
+    void runProgram(List<String> command, Path directory, String name) {
+        if (sessions == null) {
+            runCommand(command, directory, null, processCallback);
+            return;
+        }
+        try {
+            sessions.start(name, command, directory, utf8Env(),
+                    code -> log.accept(name + " finished with exit code: " + code));
+        } catch (IOException e) {
+            log.accept("Failed: " + e.getMessage());
+        }
+    }
+
+    private void runCommand(List<String> command, Path directory, Runnable onSuccess, Consumer<Process> processCallback) {
+        try {
+            ProcessService.Job job = processes.start(jobName, command, directory, utf8Env(), null, code -> {
+                log.accept("Process finished with exit code: " + code);
+                if (code == 0 && onSuccess != null) {
+                    onSuccess.run();
+                }
+                if (processCallback != null) {
+                    processCallback.accept(null); // Очищаем процесс
+                }
+            });
+            // Сохраняем процесс для интерактивного ввода
+            if (processCallback != null) {
+                processCallback.accept(job.process());
+            }
+        } catch (IOException e) {
+            log.accept("Failed: " + e.getMessage());
+            if (processCallback != null) {
+                processCallback.accept(null); // Очищаем процесс
+            }
+        }
+    }
+
+    // Устанавливаем UTF-8 кодировку для процесса (Windows)
+    private static Map<String, String> utf8Env() {
+        Map<String, String> env = new HashMap<>();
+        env.put("JAVA_TOOL_OPTIONS", "-Dfile.encoding=UTF-8 -Dconsole.encoding=UTF-8");
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            env.put("PYTHONIOENCODING", "utf-8");
+        }
+        return env;
+    }
+}
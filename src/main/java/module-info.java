@@ -2,6 +2,9 @@ module com.example.f_ex {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.web;
+    requires java.compiler;
+    requires java.xml;
+    requires static jdk.compiler;
 
     requires org.controlsfx.controls;
     requires com.dlsc.formsfx;
@@ -11,6 +14,7 @@ module com.example.f_ex {
     requires org.fxmisc.richtext;
     requires org.fxmisc.flowless;
     requires reactfx;
+    requires gradle.tooling.api;
 
     opens com.example.f_ex to javafx.fxml;
     exports com.example.f_ex;
@@ -0,0 +1,162 @@
+package com.example.f_ex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * План инкрементальной сборки на временном дереве исходников. Компиляция не
+ * запускается: после commit пустые .class создаются там, где их оставил бы javac.
+ */
+class IncrementalBuildTest {
+    private static final String OPTIONS = "-encoding UTF-8";
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void firstBuildCompilesEverything() throws IOException {
+        List<Path> sources = List.of(source("A", "class A { }"), source("B", "class B { }"));
+
+        IncrementalBuild.Plan plan = build().plan(sources, OPTIONS);
+
+        assertTrue(plan.full);
+        assertEquals(Set.of("A", "B"), names(plan));
+    }
+
+    @Test
+    void unchangedSourcesAreUpToDate() throws IOException {
+        List<Path> sources = List.of(source("A", "class A { }"), source("B", "class B { A a; }"));
+        compileAll(sources, OPTIONS);
+
+        IncrementalBuild.Plan plan = build().plan(sources, OPTIONS);
+
+        assertTrue(plan.upToDate());
+        assertFalse(plan.full);
+    }
+
+    @Test
+    void changeRecompilesDependentsTransitively() throws IOException {
+        // C видит A только через B
+        List<Path> sources = List.of(source("A", "class A { }"), source("B", "class B extends A { }"),
+                source("C", "class C { B b; }"), source("D", "class D { }"));
+        compileAll(sources, OPTIONS);
+        source("A", "class A { int x; }");
+
+        IncrementalBuild.Plan plan = build().plan(sources, OPTIONS);
+
+        assertEquals(Set.of("A", "B", "C"), names(plan));
+    }
+
+    @Test
+    void changedFileLosesNestedAndAnonymousOutputs() throws IOException {
+        List<Path> sources = List.of(source("A", "class A { class Inner { } }"), source("D", "class D { }"));
+        compileAll(sources, OPTIONS);
+        Files.createFile(classes().resolve("p/A$Inner.class"));
+        Files.createFile(classes().resolve("p/A$1.class"));
+        Files.createFile(classes().resolve("p/AB.class"));
+        source("A", "class A { }");
+
+        build().plan(sources, OPTIONS);
+
+        assertFalse(Files.exists(classes().resolve("p/A.class")));
+        assertFalse(Files.exists(classes().resolve("p/A$Inner.class")));
+        assertFalse(Files.exists(classes().resolve("p/A$1.class")));
+        // Другой тип с тем же префиксом имени и неизменённый файл не трогаются
+        assertTrue(Files.exists(classes().resolve("p/AB.class")));
+        assertTrue(Files.exists(classes().resolve("p/D.class")));
+    }
+
+    @Test
+    void removedSourceDeletesOutputsAndRecompilesUsers() throws IOException {
+        Path a = source("A", "class A { }");
+        List<Path> sources = List.of(a, source("B", "class B { A a; }"), source("D", "class D { }"));
+        compileAll(sources, OPTIONS);
+        Files.delete(a);
+
+        IncrementalBuild.Plan plan = build().plan(sources.subList(1, 3), OPTIONS);
+
+        assertEquals(Set.of("B"), names(plan));
+        assertFalse(Files.exists(classes().resolve("p/A.class")));
+    }
+
+    @Test
+    void missingOutputIsRecompiled() throws IOException {
+        List<Path> sources = List.of(source("A", "class A { }"), source("D", "class D { }"));
+        compileAll(sources, OPTIONS);
+        Files.delete(classes().resolve("p/D.class"));
+
+        IncrementalBuild.Plan plan = build().plan(sources, OPTIONS);
+
+        assertEquals(Set.of("D"), names(plan));
+    }
+
+    @Test
+    void changedOptionsForceFullBuild() throws IOException {
+        List<Path> sources = List.of(source("A", "class A { }"), source("B", "class B { }"));
+        compileAll(sources, OPTIONS);
+
+        IncrementalBuild.Plan plan = build().plan(sources, OPTIONS + " -g");
+
+        assertTrue(plan.full);
+        assertEquals(Set.of("A", "B"), names(plan));
+    }
+
+    @Test
+    void uncommittedPlanIsRepeated() throws IOException {
+        List<Path> sources = List.of(source("A", "class A { }"), source("B", "class B { A a; }"));
+        compileAll(sources, OPTIONS);
+        source("A", "class A { int x; }");
+        build().plan(sources, OPTIONS);
+
+        // Компиляция не удалась - commit не вызван, следующий план снова собирает то же
+        IncrementalBuild.Plan plan = build().plan(sources, OPTIONS);
+
+        assertEquals(Set.of("A", "B"), names(plan));
+    }
+
+    private IncrementalBuild build() {
+        return new IncrementalBuild(tmp.resolve("src"), classes());
+    }
+
+    private Path classes() {
+        return tmp.resolve("classes");
+    }
+
+    private Path source(String type, String body) throws IOException {
+        Path file = tmp.resolve("src/p/" + type + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "package p;\n" + body + "\n");
+        return file;
+    }
+
+    // Полная сборка и вывод javac: по .class на каждый тип верхнего уровня
+    private void compileAll(List<Path> sources, String options) throws IOException {
+        IncrementalBuild build = build();
+        IncrementalBuild.Plan plan = build.plan(sources, options);
+        for (Path source : plan.toCompile) {
+            for (String type : DependencyGraph.topLevelTypes(Files.readString(source))) {
+                Path out = classes().resolve(type.replace('.', '/') + ".class");
+                Files.createDirectories(out.getParent());
+                Files.write(out, new byte[0]);
+            }
+        }
+        build.commit(plan);
+    }
+
+    private static Set<String> names(IncrementalBuild.Plan plan) {
+        return plan.toCompile.stream()
+                .map(p -> p.getFileName().toString().replace(".java", ""))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.f_ex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Разрешение classpath по локальному репозиторию-фикстуре: POM и пустые JAR
+ * создаются во временном каталоге, Maven не запускается.
+ */
+class MavenPomResolverTest {
+    @TempDir
+    Path tmp;
+
+    @Test
+    void parentWithImportedBom() throws IOException {
+        Path repo = tmp.resolve("repo");
+        artifact(repo, "com.acme", "bom", "1.0", "<packaging>pom</packaging>" + managed(dep("com.acme", "lib", "2.0")), false);
+        artifact(repo, "com.acme", "lib", "2.0", "", true);
+        Path project = tmp.resolve("project");
+        write(project.resolve("pom.xml"), project("parent", "<packaging>pom</packaging>"
+                + managed(dep("com.acme", "bom", "1.0", "<type>pom</type><scope>import</scope>"))));
+        write(project.resolve("app/pom.xml"), module("app", dependencies(dep("com.acme", "lib", null))));
+
+        MavenPomResolver.Result r = only(new MavenPomResolver(repo).resolveReactor(project.resolve("app")));
+
+        assertEquals(List.of(jar(repo, "com.acme", "lib", "2.0")), r.classpath);
+        assertTrue(r.missing.isEmpty(), r.missing.toString());
+    }
+
+    @Test
+    void moduleOverridesPropertyUsedInParent() throws IOException {
+        Path repo = tmp.resolve("repo");
+        artifact(repo, "com.acme", "lib", "1.0", "", true);
+        artifact(repo, "com.acme", "lib", "2.0", "", true);
+        Path project = tmp.resolve("project");
+        write(project.resolve("pom.xml"), project("parent", "<packaging>pom</packaging>"
+                + "<properties><lib.version>1.0</lib.version></properties>"
+                + managed(dep("com.acme", "lib", "${lib.version}"))));
+        write(project.resolve("app/pom.xml"), module("app", "<properties><lib.version>2.0</lib.version></properties>"
+                + dependencies(dep("com.acme", "lib", null))));
+
+        MavenPomResolver.Result r = only(new MavenPomResolver(repo).resolveReactor(project.resolve("app")));
+
+        assertEquals(List.of(jar(repo, "com.acme", "lib", "2.0")), r.classpath);
+    }
+
+    @Test
+    void nearestVersionWins() throws IOException {
+        Path repo = tmp.resolve("repo");
+        // app -> a -> z:1.0 и app -> b -> c -> z:2.0: путь до z:1.0 короче
+        artifact(repo, "com.acme", "a", "1.0", dependencies(dep("com.acme", "z", "1.0")), true);
+        artifact(repo, "com.acme", "b", "1.0", dependencies(dep("com.acme", "c", "1.0")), true);
+        artifact(repo, "com.acme", "c", "1.0", dependencies(dep("com.acme", "z", "2.0")), true);
+        artifact(repo, "com.acme", "z", "1.0", "", true);
+        artifact(repo, "com.acme", "z", "2.0", "", true);
+        Path project = tmp.resolve("project");
+        write(project.resolve("pom.xml"), project("app",
+                dependencies(dep("com.acme", "b", "1.0") + dep("com.acme", "a", "1.0"))));
+
+        MavenPomResolver.Result r = only(new MavenPomResolver(repo).resolveReactor(project));
+
+        assertTrue(r.classpath.contains(jar(repo, "com.acme", "z", "1.0")), r.classpath.toString());
+        assertFalse(r.classpath.contains(jar(repo, "com.acme", "z", "2.0")), r.classpath.toString());
+    }
+
+    @Test
+    void exclusionsAreApplied() throws IOException {
+        Path repo = tmp.resolve("repo");
+        artifact(repo, "com.acme", "a", "1.0", dependencies(dep("com.acme", "b", "1.0")), true);
+        artifact(repo, "com.acme", "b", "1.0", dependencies(dep("com.acme", "z", "1.0")), true);
+        artifact(repo, "com.acme", "z", "1.0", "", true);
+        Path project = tmp.resolve("project");
+        write(project.resolve("pom.xml"), project("app", dependencies(dep("com.acme", "a", "1.0",
+                "<exclusions><exclusion><groupId>com.acme</groupId><artifactId>z</artifactId></exclusion></exclusions>"))));
+
+        MavenPomResolver.Result r = only(new MavenPomResolver(repo).resolveReactor(project));
+
+        // Исключение действует на всю ветку, а не только на прямые зависимости a
+        assertEquals(List.of(jar(repo, "com.acme", "a", "1.0"), jar(repo, "com.acme", "b", "1.0")), r.classpath);
+    }
+
+    @Test
+    void optionalDependenciesAreNotTransitive() throws IOException {
+        Path repo = tmp.resolve("repo");
+        artifact(repo, "com.acme", "a", "1.0", dependencies(dep("com.acme", "z", "1.0", "<optional>true</optional>")), true);
+        artifact(repo, "com.acme", "z", "1.0", "", true);
+        artifact(repo, "com.acme", "y", "1.0", "", true);
+        Path project = tmp.resolve("project");
+        write(project.resolve("pom.xml"), project("app", dependencies(dep("com.acme", "a", "1.0")
+                + dep("com.acme", "y", "1.0", "<optional>true</optional>"))));
+
+        MavenPomResolver.Result r = only(new MavenPomResolver(repo).resolveReactor(project));
+
+        // Собственная optional-зависимость проекту нужна, optional из чужого POM - нет
+        assertEquals(List.of(jar(repo, "com.acme", "a", "1.0"), jar(repo, "com.acme", "y", "1.0")), r.classpath);
+    }
+
+    @Test
+    void absentArtifactIsReportedMissing() throws IOException {
+        Path repo = tmp.resolve("repo");
+        Path project = tmp.resolve("project");
+        write(project.resolve("pom.xml"), project("app", dependencies(dep("com.acme", "absent", "1.0"))));
+
+        MavenPomResolver.Result r = only(new MavenPomResolver(repo).resolveReactor(project));
+
+        assertTrue(r.classpath.isEmpty(), r.classpath.toString());
+        assertFalse(r.missing.isEmpty());
+    }
+
+    private static MavenPomResolver.Result only(List<MavenPomResolver.Result> reactor) {
+        assertEquals(1, reactor.size());
+        return reactor.get(0);
+    }
+
+    private static String project(String artifactId, String body) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>com.example</groupId><artifactId>" + artifactId
+                + "</artifactId><version>1.0</version>" + body + "</project>";
+    }
+
+    private static String module(String artifactId, String body) {
+        return "<project><modelVersion>4.0.0</modelVersion><parent><groupId>com.example</groupId>"
+                + "<artifactId>parent</artifactId><version>1.0</version></parent><artifactId>" + artifactId
+                + "</artifactId>" + body + "</project>";
+    }
+
+    private static String managed(String deps) {
+        return "<dependencyManagement>" + dependencies(deps) + "</dependencyManagement>";
+    }
+
+    private static String dependencies(String deps) {
+        return "<dependencies>" + deps + "</dependencies>";
+    }
+
+    private static String dep(String groupId, String artifactId, String version) {
+        return dep(groupId, artifactId, version, "");
+    }
+
+    private static String dep(String groupId, String artifactId, String version, String extra) {
+        return "<dependency><groupId>" + groupId + "</groupId><artifactId>" + artifactId + "</artifactId>"
+                + (version != null ? "<version>" + version + "</version>" : "") + extra + "</dependency>";
+    }
+
+    private static void artifact(Path repo, String groupId, String artifactId, String version, String body, boolean withJar)
+            throws IOException {
+        Path dir = versionDir(repo, groupId, artifactId, version);
+        write(dir.resolve(artifactId + "-" + version + ".pom"), "<project><modelVersion>4.0.0</modelVersion><groupId>"
+                + groupId + "</groupId><artifactId>" + artifactId + "</artifactId><version>" + version + "</version>"
+                + body + "</project>");
+        if (withJar) write(jar(repo, groupId, artifactId, version), "");
+    }
+
+    private static Path jar(Path repo, String groupId, String artifactId, String version) {
+        return versionDir(repo, groupId, artifactId, version).resolve(artifactId + "-" + version + ".jar");
+    }
+
+    private static Path versionDir(Path repo, String groupId, String artifactId, String version) {
+        return repo.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(version);
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text);
+    }
+}